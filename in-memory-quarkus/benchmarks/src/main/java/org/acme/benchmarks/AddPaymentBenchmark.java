@@ -0,0 +1,87 @@
+package org.acme.benchmarks;
+
+import org.acme.domain.Payment;
+import org.acme.domain.Payments;
+import org.acme.domain.RemotePaymentName;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link Payments#add(Payment)} throughput with one, four and as many writers as there are processors.
+ * <p>
+ * The store is recreated for every iteration, so it doesn't keep growing across iterations. Payments are
+ * built the way the worker builds them: a fresh correlation id, a two decimal amount and
+ * {@link Instant#now()}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g", "--add-modules", "jdk.incubator.vector"})
+public class AddPaymentBenchmark {
+
+    private static final AtomicLong WRITERS = new AtomicLong();
+
+    @Param
+    public PaymentsImplementation implementation;
+
+    private Payments payments;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        payments = implementation.create();
+    }
+
+    @State(Scope.Thread)
+    public static class Writer {
+
+        private final long id = WRITERS.incrementAndGet();
+        private long sequence;
+
+        Payment next() {
+            RemotePaymentName processor = (sequence & 3) == 0 ? RemotePaymentName.FALLBACK : RemotePaymentName.DEFAULT;
+            return Payment.of(
+                    new UUID(id, sequence++).toString(),
+                    processor,
+                    BigDecimal.valueOf(ThreadLocalRandom.current().nextLong(1, 100_000), 2),
+                    Instant.now());
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void oneWriter(Writer writer) {
+        payments.add(writer.next());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void fourWriters(Writer writer) {
+        payments.add(writer.next());
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void maxWriters(Writer writer) {
+        payments.add(writer.next());
+    }
+}
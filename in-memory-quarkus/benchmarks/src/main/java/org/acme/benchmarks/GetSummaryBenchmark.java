@@ -0,0 +1,98 @@
+package org.acme.benchmarks;
+
+import org.acme.domain.Payment;
+import org.acme.domain.Payments;
+import org.acme.domain.PaymentsSummary;
+import org.acme.domain.RemotePaymentName;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Payments#getSummary(Instant, Instant)} latency over stores of 10k, 1M and 10M payments, spread
+ * over the five minutes before the trial starts, for unbounded, bounded and narrow ranges.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g", "--add-modules", "jdk.incubator.vector"})
+public class GetSummaryBenchmark {
+
+    private static final Duration SPAN = Duration.ofMinutes(5);
+
+    public enum Range {
+        /** The whole store, as when neither {@code from} nor {@code to} are given. */
+        UNBOUNDED,
+        /** The middle 80% of the store, with millisecond bounds like the ones the checks send. */
+        BOUNDED,
+        /** One second in the middle of the store. */
+        NARROW
+    }
+
+    @Param
+    public PaymentsImplementation implementation;
+
+    @Param({"10000", "1000000", "10000000"})
+    public int size;
+
+    @Param
+    public Range range;
+
+    private Payments payments;
+    private Instant from;
+    private Instant to;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        payments = implementation.create();
+        Instant start = Instant.now().minus(SPAN).truncatedTo(ChronoUnit.MILLIS);
+        long step = SPAN.toNanos() / size;
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < size; i++) {
+            payments.add(Payment.of(
+                    new UUID(random.nextLong(), random.nextLong()).toString(),
+                    (i & 3) == 0 ? RemotePaymentName.FALLBACK : RemotePaymentName.DEFAULT,
+                    BigDecimal.valueOf(random.nextLong(1, 100_000), 2),
+                    start.plusNanos(i * step)));
+        }
+        Instant middle = start.plus(SPAN.dividedBy(2));
+        switch (range) {
+            case UNBOUNDED -> {
+                from = null;
+                to = null;
+            }
+            case BOUNDED -> {
+                from = start.plus(SPAN.dividedBy(10));
+                to = start.plus(SPAN.multipliedBy(9).dividedBy(10));
+            }
+            case NARROW -> {
+                from = middle;
+                to = middle.plusSeconds(1);
+            }
+        }
+    }
+
+    @Benchmark
+    public PaymentsSummary getSummary() {
+        return payments.getSummary(from, to);
+    }
+}
@@ -0,0 +1,113 @@
+package org.acme.benchmarks;
+
+import org.acme.domain.NewPaymentRequest;
+import org.acme.domain.RingBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hand-off throughput of the worker queue: two producers offering payment requests, as the HTTP
+ * threads do, against two consumers polling them, for the {@link LinkedBlockingQueue} the worker used
+ * to have and the {@link RingBuffer} it has now. Run it with {@code -prof gc} to compare what each
+ * offer allocates.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class PaymentQueueBenchmark {
+
+    private static final NewPaymentRequest REQUEST =
+            new NewPaymentRequest("4a7901b8-7d26-4d9d-aa19-4dc1c7cf60b3", new BigDecimal("19.90"));
+
+    public enum Queue {
+        LINKED_BLOCKING_QUEUE {
+            @Override
+            PaymentQueue create(int capacity) {
+                LinkedBlockingQueue<NewPaymentRequest> queue = new LinkedBlockingQueue<>(capacity);
+                return new PaymentQueue() {
+                    @Override
+                    public boolean offer(NewPaymentRequest request) {
+                        return queue.offer(request);
+                    }
+
+                    @Override
+                    public NewPaymentRequest poll() {
+                        return queue.poll();
+                    }
+                };
+            }
+        },
+        RING_BUFFER {
+            @Override
+            PaymentQueue create(int capacity) {
+                RingBuffer<NewPaymentRequest> ring = new RingBuffer<>(capacity);
+                return new PaymentQueue() {
+                    @Override
+                    public boolean offer(NewPaymentRequest request) {
+                        return ring.offer(request);
+                    }
+
+                    @Override
+                    public NewPaymentRequest poll() {
+                        return ring.poll();
+                    }
+                };
+            }
+        };
+
+        abstract PaymentQueue create(int capacity);
+    }
+
+    interface PaymentQueue {
+
+        boolean offer(NewPaymentRequest request);
+
+        NewPaymentRequest poll();
+    }
+
+    @Param
+    public Queue queue;
+
+    @Param({"100000"})
+    public int capacity;
+
+    private PaymentQueue paymentQueue;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        paymentQueue = queue.create(capacity);
+    }
+
+    @Benchmark
+    @Group("handOff")
+    @GroupThreads(2)
+    public boolean offer() {
+        return paymentQueue.offer(REQUEST);
+    }
+
+    @Benchmark
+    @Group("handOff")
+    @GroupThreads(2)
+    public NewPaymentRequest poll() {
+        return paymentQueue.poll();
+    }
+}
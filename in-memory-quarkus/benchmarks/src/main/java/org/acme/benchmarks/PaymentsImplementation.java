@@ -0,0 +1,61 @@
+package org.acme.benchmarks;
+
+import org.acme.domain.Payments;
+import org.acme.infrastructure.ColumnarPayments;
+import org.acme.infrastructure.InMemoryPayments;
+import org.acme.infrastructure.PaymentsJournal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Every {@link Payments} implementation, so each benchmark runs all of them under the same parameters.
+ */
+public enum PaymentsImplementation {
+
+    IN_MEMORY {
+        @Override
+        Payments create() {
+            return inMemoryPayments(PaymentsJournal.disabled());
+        }
+    },
+
+    IN_MEMORY_JOURNALED {
+        @Override
+        Payments create() {
+            try {
+                Path journal = Files.createTempFile("payments", ".journal");
+                journal.toFile().deleteOnExit();
+                return inMemoryPayments(new PaymentsJournal(Optional.of(journal.toString()),
+                        Duration.ofMillis(10), Duration.ofMinutes(1), PaymentsJournal.DEFAULT_CAPACITY));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    },
+
+    COLUMNAR {
+        @Override
+        Payments create() {
+            return new ColumnarPayments(ColumnarPayments.DEFAULT_CORRELATION_IDS_CAPACITY);
+        }
+    };
+
+    abstract Payments create();
+
+    private static Payments inMemoryPayments(PaymentsJournal journal) {
+        return new InMemoryPayments(
+                InMemoryPayments.DEFAULT_PARALLEL_STREAM_THRESHOLD,
+                InMemoryPayments.DEFAULT_REORDER_WINDOW,
+                InMemoryPayments.DEFAULT_RETENTION_HORIZON,
+                InMemoryPayments.DEFAULT_COMPACTION_INTERVAL,
+                InMemoryPayments.DEFAULT_ROLL_UPS_COARSE_AFTER,
+                InMemoryPayments.DEFAULT_ROLL_UPS_HORIZON,
+                InMemoryPayments.DEFAULT_CORRELATION_IDS_CAPACITY,
+                journal);
+    }
+}
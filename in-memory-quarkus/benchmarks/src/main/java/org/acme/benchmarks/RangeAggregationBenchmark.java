@@ -0,0 +1,77 @@
+package org.acme.benchmarks;
+
+import org.acme.domain.Payment;
+import org.acme.domain.PaymentsSummary;
+import org.acme.domain.RemotePaymentName;
+import org.acme.infrastructure.RangeAggregationKernel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The scalar and Vector API {@link RangeAggregationKernel}s over the columns of 1M and 10M payments,
+ * for a range covering half of them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g", "--add-modules", "jdk.incubator.vector"})
+public class RangeAggregationBenchmark {
+
+    private static final Instant START = Instant.parse("2025-07-21T10:00:00Z");
+
+    public enum Kernel {
+        SCALAR,
+        VECTOR
+    }
+
+    @Param
+    public Kernel kernel;
+
+    @Param({"1000000", "10000000"})
+    public int size;
+
+    private RangeAggregationKernel aggregation;
+    private RangeAggregationKernel.Columns columns;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        aggregation = kernel == Kernel.SCALAR ? RangeAggregationKernel.SCALAR : RangeAggregationKernel.preferred();
+        if (kernel == Kernel.VECTOR && !aggregation.isVectorized()) {
+            throw new IllegalStateException("The Vector API isn't available");
+        }
+        SplittableRandom random = new SplittableRandom(42);
+        Payment[] payments = new Payment[size];
+        for (int i = 0; i < size; i++) {
+            payments[i] = Payment.of(null,
+                    random.nextInt(4) == 0 ? RemotePaymentName.FALLBACK : RemotePaymentName.DEFAULT,
+                    BigDecimal.valueOf(random.nextLong(1, 100_000), 2),
+                    START.plusNanos(random.nextLong(1_000_000_000L)));
+        }
+        Arrays.sort(payments, Comparator.comparing(Payment::requestedAt));
+        columns = RangeAggregationKernel.columns(payments, START);
+    }
+
+    @Benchmark
+    public PaymentsSummary sum() {
+        return aggregation.sum(columns, START.plusMillis(250), START.plusMillis(750));
+    }
+}
@@ -0,0 +1,27 @@
+package org.acme.api;
+
+import io.smallrye.common.annotation.RunOnVirtualThread;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import org.acme.domain.ConcurrencyLimiter;
+import org.acme.domain.PaymentWorker;
+
+@Path("/internal/concurrency-limit")
+@Produces(MediaType.APPLICATION_JSON)
+@RunOnVirtualThread
+public class ConcurrencyLimitResource {
+
+    private final PaymentWorker paymentWorker;
+
+    public ConcurrencyLimitResource(PaymentWorker paymentWorker) {
+        this.paymentWorker = paymentWorker;
+    }
+
+    @GET
+    public ConcurrencyLimiter.Stats get() {
+        return paymentWorker.concurrencyStats();
+    }
+
+}
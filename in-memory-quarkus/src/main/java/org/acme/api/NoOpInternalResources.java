@@ -9,6 +9,10 @@ import jakarta.ws.rs.Path;
 import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.core.MediaType;
 import org.acme.domain.PaymentsSummary;
+import org.acme.domain.PendingPayment;
+import org.acme.domain.ProcessorsHealth;
+
+import java.util.List;
 
 @ApplicationScoped
 @Path("/no-op")
@@ -29,6 +33,18 @@ public class NoOpInternalResources {
         // do nothing
     }
 
+    @POST
+    @Path("/internal/pending-payments")
+    public int enqueuePendingPayments(List<PendingPayment> payments) {
+        return 0;
+    }
+
+    @GET
+    @Path("/internal/processors-health")
+    public ProcessorsHealth getProcessorsHealth() {
+        return ProcessorsHealth.UNKNOWN;
+    }
+
     @Path("/q/health/ready")
     @GET
     public String healthReadyCheck() {
@@ -0,0 +1,190 @@
+package org.acme.api;
+
+import org.acme.domain.NewPaymentRequest;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads the body of {@code POST /payments} straight from its bytes, for the shape the payments come
+ * in: an object with a lowercase UUID {@code correlationId} and an {@code amount} with exactly two
+ * decimals, in any order, with any whitespace. Anything else, from escapes to other fields or amounts
+ * of another scale, is left to the generic JSON binding, by returning {@code null}.
+ */
+final class PaymentRequestParser {
+
+    private static final byte[] CORRELATION_ID = "correlationId".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] AMOUNT = "amount".getBytes(StandardCharsets.US_ASCII);
+    private static final int UUID_LENGTH = 36;
+    // keeps the cents below Long.MAX_VALUE
+    private static final int MAX_INTEGER_DIGITS = 16;
+
+    private final byte[] bytes;
+    private final int length;
+    private int position;
+    private boolean invalidHex;
+
+    private PaymentRequestParser(byte[] bytes, int length) {
+        this.bytes = bytes;
+        this.length = length;
+    }
+
+    static NewPaymentRequest parse(byte[] bytes, int length) {
+        return new PaymentRequestParser(bytes, length).parse();
+    }
+
+    private NewPaymentRequest parse() {
+        boolean hasId = false;
+        boolean hasAmount = false;
+        long mostSigBits = 0;
+        long leastSigBits = 0;
+        long cents = 0;
+        if (!skipWhitespaceAndExpect('{')) {
+            return null;
+        }
+        while (true) {
+            if (!skipWhitespaceAndExpect('"')) {
+                return null;
+            }
+            int keyStart = position;
+            int keyEnd = indexOfQuote();
+            if (keyEnd < 0) {
+                return null;
+            }
+            position = keyEnd + 1;
+            if (!skipWhitespaceAndExpect(':')) {
+                return null;
+            }
+            skipWhitespace();
+            if (!hasId && matches(keyStart, keyEnd, CORRELATION_ID)) {
+                if (position + UUID_LENGTH + 2 > length || bytes[position] != '"' || bytes[position + UUID_LENGTH + 1] != '"') {
+                    return null;
+                }
+                int start = position + 1;
+                mostSigBits = hex(start, 8) << 32 | hex(start + 9, 4) << 16 | hex(start + 14, 4);
+                leastSigBits = hex(start + 19, 4) << 48 | hex(start + 24, 12);
+                if (invalidHex || !dashesAt(start)) {
+                    return null;
+                }
+                position += UUID_LENGTH + 2;
+                hasId = true;
+            } else if (!hasAmount && matches(keyStart, keyEnd, AMOUNT)) {
+                cents = cents();
+                if (cents < 0) {
+                    return null;
+                }
+                hasAmount = true;
+            } else {
+                return null;
+            }
+            skipWhitespace();
+            if (position >= length) {
+                return null;
+            }
+            byte next = bytes[position++];
+            if (next == '}') {
+                break;
+            }
+            if (next != ',') {
+                return null;
+            }
+        }
+        skipWhitespace();
+        if (position != length || !hasId || !hasAmount) {
+            return null;
+        }
+        return NewPaymentRequest.compact(mostSigBits, leastSigBits, cents);
+    }
+
+    // lowercase only, so the id reads back exactly as it came in
+    private long hex(int start, int digits) {
+        long value = 0;
+        for (int i = start; i < start + digits; i++) {
+            byte b = bytes[i];
+            int digit;
+            if (b >= '0' && b <= '9') {
+                digit = b - '0';
+            } else if (b >= 'a' && b <= 'f') {
+                digit = b - 'a' + 10;
+            } else {
+                invalidHex = true;
+                return 0;
+            }
+            value = value << 4 | digit;
+        }
+        return value;
+    }
+
+    private boolean dashesAt(int start) {
+        return bytes[start + 8] == '-' && bytes[start + 13] == '-' && bytes[start + 18] == '-' && bytes[start + 23] == '-';
+    }
+
+    // the amount in cents, or -1 unless it's a plain decimal with exactly two decimals
+    private long cents() {
+        long value = 0;
+        int integerDigits = 0;
+        while (position < length && isDigit(bytes[position])) {
+            if (++integerDigits > MAX_INTEGER_DIGITS) {
+                return -1;
+            }
+            value = value * 10 + (bytes[position++] - '0');
+        }
+        if (integerDigits == 0 || position + 3 > length || bytes[position] != '.'
+                || !isDigit(bytes[position + 1]) || !isDigit(bytes[position + 2])) {
+            return -1;
+        }
+        value = value * 100 + (bytes[position + 1] - '0') * 10 + (bytes[position + 2] - '0');
+        position += 3;
+        if (position < length && (isDigit(bytes[position]) || bytes[position] == 'e' || bytes[position] == 'E')) {
+            return -1;
+        }
+        return value;
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private int indexOfQuote() {
+        for (int i = position; i < length; i++) {
+            if (bytes[i] == '"') {
+                return i;
+            }
+            if (bytes[i] == '\\') {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    private boolean matches(int start, int end, byte[] key) {
+        if (end - start != key.length) {
+            return false;
+        }
+        for (int i = 0; i < key.length; i++) {
+            if (bytes[start + i] != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean skipWhitespaceAndExpect(char expected) {
+        skipWhitespace();
+        if (position >= length || bytes[position] != expected) {
+            return false;
+        }
+        position++;
+        return true;
+    }
+
+    private void skipWhitespace() {
+        while (position < length) {
+            byte b = bytes[position];
+            if (b != ' ' && b != '\n' && b != '\r' && b != '\t') {
+                return;
+            }
+            position++;
+        }
+    }
+
+}
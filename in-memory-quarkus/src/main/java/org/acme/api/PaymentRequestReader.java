@@ -0,0 +1,106 @@
+package org.acme.api;
+
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbException;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.MultivaluedMap;
+import jakarta.ws.rs.ext.MessageBodyReader;
+import jakarta.ws.rs.ext.Provider;
+import org.acme.domain.NewPaymentRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Binds the body of {@code POST /payments} without going through JSON-B for every payment.
+ * <p>
+ * The body is read into a pooled buffer and handed to {@link PaymentRequestParser}, which keeps the
+ * correlation id and amount as numbers; only bodies it doesn't take are bound the generic way, as
+ * {@link PaymentsResource.PaymentRequest}. Bodies that are empty, aren't JSON, or lack either field are
+ * rejected with a {@link BadRequestException}, so they're answered with a 400 rather than a 500.
+ */
+@Provider
+@Consumes(MediaType.APPLICATION_JSON)
+public class PaymentRequestReader implements MessageBodyReader<NewPaymentRequest> {
+
+    // comfortably above {"correlationId":"<uuid>","amount":<amount>}
+    private static final int BUFFER_SIZE = 256;
+    private static final int POOL_SIZE = 64;
+
+    private final Jsonb jsonb;
+    private final AtomicReferenceArray<byte[]> buffers = new AtomicReferenceArray<>(POOL_SIZE);
+
+    public PaymentRequestReader(Jsonb jsonb) {
+        this.jsonb = jsonb;
+    }
+
+    @Override
+    public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return type == NewPaymentRequest.class;
+    }
+
+    @Override
+    public NewPaymentRequest readFrom(Class<NewPaymentRequest> type,
+                                      Type genericType,
+                                      Annotation[] annotations,
+                                      MediaType mediaType,
+                                      MultivaluedMap<String, String> httpHeaders,
+                                      InputStream entityStream) throws IOException {
+        byte[] buffer = acquire();
+        try {
+            int length = entityStream.readNBytes(buffer, 0, buffer.length);
+            if (length == 0) {
+                throw new BadRequestException("Empty payment");
+            }
+            if (length == buffer.length) {
+                // larger than any payment this parser takes
+                return bind(new SequenceInputStream(new ByteArrayInputStream(buffer, 0, length), entityStream));
+            }
+            NewPaymentRequest request = PaymentRequestParser.parse(buffer, length);
+            return request != null ? request : bind(new ByteArrayInputStream(buffer, 0, length));
+        } finally {
+            release(buffer);
+        }
+    }
+
+    private NewPaymentRequest bind(InputStream body) {
+        PaymentsResource.PaymentRequest request;
+        try {
+            request = jsonb.fromJson(body, PaymentsResource.PaymentRequest.class);
+        } catch (JsonbException e) {
+            throw new BadRequestException("Malformed payment: " + e.getMessage(), e);
+        }
+        if (request == null || request.correlationId() == null || request.amount() == null) {
+            throw new BadRequestException("A payment needs a correlationId and an amount");
+        }
+        return request.toNewPayment();
+    }
+
+    private byte[] acquire() {
+        int start = (int) Thread.currentThread().threadId();
+        for (int i = 0; i < POOL_SIZE; i++) {
+            byte[] buffer = buffers.getAndSet((start + i) & (POOL_SIZE - 1), null);
+            if (buffer != null) {
+                return buffer;
+            }
+        }
+        return new byte[BUFFER_SIZE];
+    }
+
+    private void release(byte[] buffer) {
+        int start = (int) Thread.currentThread().threadId();
+        for (int i = 0; i < POOL_SIZE; i++) {
+            if (buffers.compareAndSet((start + i) & (POOL_SIZE - 1), null, buffer)) {
+                return;
+            }
+        }
+    }
+
+}
@@ -9,6 +9,7 @@ import jakarta.ws.rs.Path;
 import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import org.acme.domain.Admission;
 import org.acme.domain.NewPaymentRequest;
 import org.acme.domain.PaymentWorker;
 
@@ -43,11 +44,14 @@ public class PaymentsResource {
     }
 
     @POST
-    public Response process(PaymentRequest request) {
-        if (paymentWorker.accept(request.toNewPayment())) {
+    public Response process(NewPaymentRequest request) {
+        Admission admission = paymentWorker.admit(request);
+        if (admission.accepted()) {
             return Response.status(Response.Status.CREATED).build();
         }
-        return Response.status(Response.Status.TOO_MANY_REQUESTS).build();
+        return Response.status(Response.Status.TOO_MANY_REQUESTS)
+                .header("Retry-After", admission.retryAfterSeconds())
+                .build();
     }
 
 }
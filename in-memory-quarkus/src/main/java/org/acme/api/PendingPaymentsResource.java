@@ -0,0 +1,35 @@
+package org.acme.api;
+
+import io.smallrye.common.annotation.RunOnVirtualThread;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import org.acme.domain.PaymentWorker;
+import org.acme.domain.PendingPayment;
+
+import java.util.List;
+
+@Path("/internal/pending-payments")
+@Consumes(MediaType.APPLICATION_JSON)
+@Produces(MediaType.APPLICATION_JSON)
+@RunOnVirtualThread
+public class PendingPaymentsResource {
+
+    private final PaymentWorker paymentWorker;
+
+    public PendingPaymentsResource(PaymentWorker paymentWorker) {
+        this.paymentWorker = paymentWorker;
+    }
+
+    /**
+     * Queues the payments the peer instance handed off while shutting down, returning how many were
+     * taken.
+     */
+    @POST
+    public int enqueue(List<PendingPayment> payments) {
+        return paymentWorker.enqueue(payments.stream().map(PendingPayment::toNewPaymentRequest).toList());
+    }
+
+}
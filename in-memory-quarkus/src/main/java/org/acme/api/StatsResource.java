@@ -0,0 +1,32 @@
+package org.acme.api;
+
+import io.smallrye.common.annotation.RunOnVirtualThread;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import org.acme.domain.PaymentStats;
+
+@Path("/internal/stats")
+@RunOnVirtualThread
+public class StatsResource {
+
+    private final PaymentStats paymentStats;
+
+    public StatsResource(PaymentStats paymentStats) {
+        this.paymentStats = paymentStats;
+    }
+
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public PaymentStats.Snapshot get() {
+        return paymentStats.snapshot();
+    }
+
+    @GET
+    @Produces(MediaType.TEXT_PLAIN)
+    public String prometheus() {
+        return paymentStats.prometheus();
+    }
+
+}
@@ -0,0 +1,25 @@
+package org.acme.domain;
+
+import java.time.Duration;
+
+/**
+ * Whether a payment was queued and, if not, how long its client should wait before trying again.
+ */
+public record Admission(boolean accepted, Duration retryAfter) {
+
+    public static final Admission ACCEPTED = new Admission(true, Duration.ZERO);
+
+    private static final Duration MIN_RETRY_AFTER = Duration.ofSeconds(1);
+
+    public static Admission rejected(Duration retryAfter) {
+        return new Admission(false, retryAfter.compareTo(MIN_RETRY_AFTER) < 0 ? MIN_RETRY_AFTER : retryAfter);
+    }
+
+    /**
+     * The wait in whole seconds, rounded up, as {@code Retry-After} wants it.
+     */
+    public long retryAfterSeconds() {
+        return retryAfter.plusNanos(999_999_999).toSeconds();
+    }
+
+}
@@ -0,0 +1,111 @@
+package org.acme.domain;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Turns payments away while the ones already queued would keep a new one waiting longer than the
+ * latency budget.
+ * <p>
+ * The wait is estimated from the fresh payments queued and the rate workers have been taking them
+ * at, smoothed over sampling intervals. Only intervals the workers spent backlogged are sampled: once
+ * they catch up with the queue they take payments as fast as they arrive, which says nothing of how fast
+ * they could, so a quiet period keeps the rate measured under the last backlog rather than decaying it
+ * to nothing. Queues shallow enough for one round of the workers, and any queue before a backlog was
+ * ever measured, are always admitted, and no payment is asked to wait longer than
+ * {@link #MAX_RETRY_AFTER}.
+ */
+public final class AdmissionControl {
+
+    private static final long SAMPLE_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final double SMOOTHING = 0.3;
+    static final Duration MAX_RETRY_AFTER = Duration.ofSeconds(5);
+
+    private final long budgetNanos;
+    private final int minDepth;
+    private final LongSupplier nanoTime;
+
+    private final LongAdder drained = new LongAdder();
+    private final AtomicLong sampledAt;
+    private volatile long drainedAtSample;
+    // whether the workers ran out of queued payments since the last sample, as they start out
+    private volatile boolean caughtUp = true;
+    // payments per second, NaN until measured, only written by whoever wins the sample
+    private volatile double drainRate = Double.NaN;
+
+    public AdmissionControl(Duration latencyBudget, int minDepth) {
+        this(latencyBudget, minDepth, System::nanoTime);
+    }
+
+    AdmissionControl(Duration latencyBudget, int minDepth, LongSupplier nanoTime) {
+        this.budgetNanos = latencyBudget.toNanos();
+        this.minDepth = minDepth;
+        this.nanoTime = nanoTime;
+        this.sampledAt = new AtomicLong(nanoTime.getAsLong());
+    }
+
+    /**
+     * Counts the payments a worker took, and whether it left the queue empty behind them.
+     */
+    public void recordDrained(int count, boolean caughtUp) {
+        drained.add(count);
+        if (caughtUp && !this.caughtUp) {
+            this.caughtUp = true;
+        }
+    }
+
+    /**
+     * How long a payment arriving behind {@code depth} queued ones should wait before coming back, or
+     * {@link Duration#ZERO} when it fits in the budget.
+     */
+    public Duration retryAfter(int depth) {
+        sample();
+        if (depth <= minDepth) {
+            return Duration.ZERO;
+        }
+        double rate = drainRate;
+        if (Double.isNaN(rate)) {
+            // never backlogged yet: the lanes' capacity is the only bound
+            return Duration.ZERO;
+        }
+        if (rate <= 0) {
+            // nothing drained while backlogged: nothing queued now will be done within the budget
+            return Duration.ofNanos(Math.min(budgetNanos, MAX_RETRY_AFTER.toNanos()));
+        }
+        long delayNanos = (long) Math.min(depth / rate * TimeUnit.SECONDS.toNanos(1), Long.MAX_VALUE);
+        if (delayNanos <= budgetNanos) {
+            return Duration.ZERO;
+        }
+        return Duration.ofNanos(Math.min(delayNanos - budgetNanos, MAX_RETRY_AFTER.toNanos()));
+    }
+
+    public double drainRate() {
+        sample();
+        double rate = drainRate;
+        return Double.isNaN(rate) ? 0 : rate;
+    }
+
+    private void sample() {
+        long now = nanoTime.getAsLong();
+        long last = sampledAt.get();
+        long elapsed = now - last;
+        if (elapsed < SAMPLE_NANOS || !sampledAt.compareAndSet(last, now)) {
+            return;
+        }
+        long total = drained.sum();
+        boolean wasCaughtUp = caughtUp;
+        caughtUp = false;
+        double rate = (total - drainedAtSample) * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+        drainedAtSample = total;
+        if (wasCaughtUp) {
+            // the rate of arrivals, not of the workers
+            return;
+        }
+        double previous = drainRate;
+        drainRate = Double.isNaN(previous) ? rate : previous + SMOOTHING * (rate - previous);
+    }
+
+}
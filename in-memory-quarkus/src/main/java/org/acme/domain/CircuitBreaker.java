@@ -0,0 +1,173 @@
+package org.acme.domain;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Circuit breaker shared by every worker calling one processor.
+ * <p>
+ * While closed, the outcomes of the last {@code window} calls are kept in a ring, a call failing or
+ * taking longer than {@code slowCall} counting as a failure. Once the ring is full and holds at least
+ * {@code failureRatio} failures the breaker opens and refuses every call for {@code openDuration}; then
+ * it lets a single probe through, closing again on its success and reopening on its failure, or once
+ * the probe is out for longer than {@code slowCall} without reporting.
+ * <p>
+ * Every call goes through with a permit naming the state it was let through in, and its outcome only
+ * counts while the breaker is still in that state: a call started while closed can't decide a probe,
+ * nor one started before the breaker last closed fill the new ring.
+ */
+public final class CircuitBreaker {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    /**
+     * What {@link #tryAcquire()} returns for a call that may not go through.
+     */
+    public static final long REFUSED = -1;
+
+    private static final State[] STATES = State.values();
+
+    private final RemotePaymentName processor;
+    private final int window;
+    private final int failureThreshold;
+    private final long openNanos;
+    private final long slowCallNanos;
+    private final LongSupplier nanoTime;
+
+    private final AtomicIntegerArray outcomes;
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicInteger failures = new AtomicInteger();
+    // the state in the low bits, and how many times it changed above them
+    private final AtomicLong state = new AtomicLong(State.CLOSED.ordinal());
+    private volatile long openedAt;
+    private volatile long probedAt;
+
+    public CircuitBreaker(RemotePaymentName processor, int window, double failureRatio,
+                          Duration openDuration, Duration slowCall) {
+        this(processor, window, failureRatio, openDuration, slowCall, System::nanoTime);
+    }
+
+    CircuitBreaker(RemotePaymentName processor, int window, double failureRatio,
+                   Duration openDuration, Duration slowCall, LongSupplier nanoTime) {
+        if (window <= 0) {
+            throw new IllegalArgumentException("Window must be positive");
+        }
+        if (failureRatio <= 0 || failureRatio > 1) {
+            throw new IllegalArgumentException("Failure ratio must be in (0, 1]");
+        }
+        this.processor = processor;
+        this.window = window;
+        this.failureThreshold = (int) Math.ceil(window * failureRatio);
+        this.openNanos = openDuration.toNanos();
+        this.slowCallNanos = slowCall.toNanos();
+        this.nanoTime = nanoTime;
+        this.outcomes = new AtomicIntegerArray(window);
+    }
+
+    public State state() {
+        return stateOf(state.get());
+    }
+
+    /**
+     * A permit for a call to go through now, or {@link #REFUSED}. Past the open duration, the first
+     * caller to ask becomes the probe. Whoever gets a permit must report the call's outcome with it.
+     */
+    public long tryAcquire() {
+        long current = state.get();
+        return switch (stateOf(current)) {
+            case CLOSED -> current;
+            case OPEN -> {
+                long now = nanoTime.getAsLong();
+                if (now - openedAt < openNanos) {
+                    yield REFUSED;
+                }
+                // set first, so nobody sees the probe out with the time the one before went
+                probedAt = now;
+                long probe = next(current, State.HALF_OPEN);
+                yield state.compareAndSet(current, probe) ? probe : REFUSED;
+            }
+            case HALF_OPEN -> {
+                // the probe is as good as failed, whether it reports some day or not
+                if (nanoTime.getAsLong() - probedAt > slowCallNanos) {
+                    open(current);
+                }
+                yield REFUSED;
+            }
+        };
+    }
+
+    public void onSuccess(long permit, long elapsedNanos) {
+        record(permit, elapsedNanos > slowCallNanos);
+    }
+
+    public void onFailure(long permit) {
+        record(permit, true);
+    }
+
+    private void record(long permit, boolean failed) {
+        // let through in a state the breaker has left since
+        if (state.get() != permit) {
+            return;
+        }
+        switch (stateOf(permit)) {
+            case HALF_OPEN -> {
+                if (failed) {
+                    open(permit);
+                } else {
+                    close(permit);
+                }
+            }
+            case CLOSED -> {
+                long call = calls.getAndIncrement();
+                int previous = outcomes.getAndSet((int) (call % window), failed ? 1 : 0);
+                int current = failures.addAndGet((failed ? 1 : 0) - previous);
+                if (call + 1 >= window && current >= failureThreshold) {
+                    open(permit);
+                }
+            }
+            // no call is let through while open
+            case OPEN -> {
+            }
+        }
+    }
+
+    private void open(long from) {
+        // set first, so nobody sees the breaker open with the time it opened before
+        openedAt = nanoTime.getAsLong();
+        if (state.compareAndSet(from, next(from, State.OPEN))) {
+            LOGGER.warn("Circuit breaker of the {} processor opened", processor.value());
+        }
+    }
+
+    private void close(long from) {
+        for (int i = 0; i < window; i++) {
+            outcomes.set(i, 0);
+        }
+        failures.set(0);
+        calls.set(0);
+        if (state.compareAndSet(from, next(from, State.CLOSED))) {
+            LOGGER.info("Circuit breaker of the {} processor closed", processor.value());
+        }
+    }
+
+    private static State stateOf(long state) {
+        return STATES[(int) (state & 3)];
+    }
+
+    private static long next(long state, State to) {
+        return ((state >>> 2) + 1) << 2 | to.ordinal();
+    }
+
+}
@@ -0,0 +1,139 @@
+package org.acme.domain;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limits the payments in flight to the processors, adapting the limit to what they can take (AIMD).
+ * <p>
+ * Every call reports its round trip and whether it went through. A failed call, or one slower than
+ * {@code tolerance} times the shortest round trip seen lately, cuts the limit by {@code backoffRatio};
+ * a successful one grows it by one per limit's worth of calls, as long as the limit is actually used.
+ */
+public final class ConcurrencyLimiter {
+
+    // lets the shortest round trip follow the processors when they get slower for good
+    private static final int MIN_RTT_DRIFT_SHIFT = 10;
+    private static final double SMOOTHING = 0.05;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double backoffRatio;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private double limit;
+    private int inFlight;
+    private long minRttNanos = Long.MAX_VALUE;
+    private double smoothedRttNanos;
+
+    public ConcurrencyLimiter(int minLimit, int initialLimit, int maxLimit, double tolerance, double backoffRatio) {
+        if (minLimit <= 0 || minLimit > maxLimit) {
+            throw new IllegalArgumentException("Limits must satisfy 0 < min <= max");
+        }
+        if (tolerance < 1) {
+            throw new IllegalArgumentException("Tolerance must be at least 1");
+        }
+        if (backoffRatio <= 0 || backoffRatio >= 1) {
+            throw new IllegalArgumentException("Backoff ratio must be in (0, 1)");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.backoffRatio = backoffRatio;
+        this.limit = Math.clamp(initialLimit, minLimit, maxLimit);
+    }
+
+    /**
+     * Waits until one more call fits under the limit.
+     */
+    public void acquire() throws InterruptedException {
+        lock.lock();
+        try {
+            while (inFlight >= (int) limit) {
+                available.await();
+            }
+            inFlight++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reports how an acquired call went, and makes room for the next one.
+     */
+    public void release(long rttNanos, boolean succeeded) {
+        lock.lock();
+        try {
+            int used = inFlight--;
+            if (minRttNanos == Long.MAX_VALUE) {
+                minRttNanos = rttNanos;
+                smoothedRttNanos = rttNanos;
+            } else {
+                minRttNanos = Math.min(rttNanos, minRttNanos + (minRttNanos >> MIN_RTT_DRIFT_SHIFT) + 1);
+                smoothedRttNanos += SMOOTHING * (rttNanos - smoothedRttNanos);
+            }
+            if (!succeeded || rttNanos > tolerance * minRttNanos) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+            } else if (used * 2 >= (int) limit) {
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Makes room for the next call after an acquired one that was never sent, leaving the limit and the
+     * round trips as they were: it tells nothing about the processors.
+     */
+    public void release() {
+        lock.lock();
+        try {
+            inFlight--;
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until no call is in flight, for up to the given time. Returns whether none is.
+     */
+    public boolean awaitIdle(long timeoutNanos) throws InterruptedException {
+        lock.lock();
+        try {
+            long remaining = timeoutNanos;
+            while (inFlight > 0) {
+                if (remaining <= 0) {
+                    return false;
+                }
+                remaining = available.awaitNanos(remaining);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Stats stats() {
+        lock.lock();
+        try {
+            return new Stats((int) limit, inFlight,
+                    minRttNanos == Long.MAX_VALUE ? 0 : TimeUnit.NANOSECONDS.toMicros(minRttNanos),
+                    TimeUnit.NANOSECONDS.toMicros((long) smoothedRttNanos));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @RegisterForReflection
+    public record Stats(int limit, int inFlight, long minRttMicros, long smoothedRttMicros) {
+    }
+
+}
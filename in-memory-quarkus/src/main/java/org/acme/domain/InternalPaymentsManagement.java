@@ -9,6 +9,8 @@ import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.QueryParam;
 import org.eclipse.microprofile.rest.client.inject.RegisterRestClient;
 
+import java.util.List;
+
 @RegisterRestClient(configKey = "internal-payments-management")
 public interface InternalPaymentsManagement {
 
@@ -26,6 +28,18 @@ public interface InternalPaymentsManagement {
     @Consumes("application/json")
     void purgeInternalPayments();
 
+    @Path("/internal/pending-payments")
+    @POST
+    @Produces("application/json")
+    @Consumes("application/json")
+    int enqueuePendingPayments(List<PendingPayment> payments);
+
+    @Path("/internal/processors-health")
+    @GET
+    @Produces("application/json")
+    @Consumes("application/json")
+    ProcessorsHealth getProcessorsHealth();
+
     @Path("/q/health/ready")
     @GET
     @Produces("application/json")
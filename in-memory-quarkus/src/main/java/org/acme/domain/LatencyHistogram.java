@@ -0,0 +1,112 @@
+package org.acme.domain;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts latencies in nanoseconds into log-linear buckets, in the manner of an HDR histogram.
+ * <p>
+ * Every power of two is split into {@code 2^SUB_BUCKET_BITS} buckets, so a bucket is never wider than
+ * about 3% of the values in it, from single nanoseconds up to over an hour, where the last bucket takes
+ * everything longer. Recording is a couple of atomic increments on preallocated counters: no lock and
+ * no allocation. Summaries read the counters while they are being written to, so one taken under load is
+ * off by the samples recorded while it scanned.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // 2^42ns is about 73 minutes
+    private static final int MAX_EXPONENT = 42;
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(index(value));
+        totalNanos.add(value);
+        long max = maxNanos.get();
+        while (value > max && !maxNanos.compareAndSet(max, value)) {
+            max = maxNanos.get();
+        }
+    }
+
+    static int index(long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int shift = exponent - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    // the largest value counted in the bucket
+    static long highestValue(int index) {
+        if (index < 2 * SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long subBucket = index - (long) shift * SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    public Summary summary() {
+        long[] snapshot = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            count += snapshot[i];
+        }
+        long max = maxNanos.get();
+        if (count == 0) {
+            return Summary.EMPTY;
+        }
+        return new Summary(count,
+                micros(totalNanos.sum() / count),
+                micros(percentile(snapshot, count, max, 0.5)),
+                micros(percentile(snapshot, count, max, 0.9)),
+                micros(percentile(snapshot, count, max, 0.99)),
+                micros(percentile(snapshot, count, max, 0.999)),
+                micros(max));
+    }
+
+    private static long percentile(long[] snapshot, long count, long max, double quantile) {
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(highestValue(i), max);
+            }
+        }
+        return max;
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    @RegisterForReflection
+    public record Summary(long count,
+                          long meanMicros,
+                          long p50Micros,
+                          long p90Micros,
+                          long p99Micros,
+                          long p999Micros,
+                          long maxMicros) {
+
+        public static final Summary EMPTY = new Summary(0, 0, 0, 0, 0, 0, 0);
+
+    }
+
+}
@@ -3,13 +3,124 @@ package org.acme.domain;
 import io.quarkus.runtime.annotations.RegisterForReflection;
 
 import java.math.BigDecimal;
-import java.time.Instant;
+import java.util.Objects;
+import java.util.UUID;
 
+/**
+ * A payment waiting to be sent to a processor.
+ * <p>
+ * Requests read straight from the bytes of {@code POST /payments} keep the correlation id as the two
+ * longs of its UUID and the amount as cents, and only turn them into a string and a
+ * {@link BigDecimal} when asked for them, once, off the accepting thread.
+ */
 @RegisterForReflection
-public record NewPaymentRequest(String correlationId, BigDecimal amount) {
+public final class NewPaymentRequest {
 
-    public RemotePaymentRequest toNewPayment() {
-        return new RemotePaymentRequest(correlationId, amount, Instant.now());
+    private static final int CENTS_SCALE = 2;
+
+    private final boolean compact;
+    private final long idMostSigBits;
+    private final long idLeastSigBits;
+    private final long amountCents;
+    private final int attempts;
+    // racy caches: both are immutable, so every thread sees either null or a complete value
+    private String correlationId;
+    private BigDecimal amount;
+    // when it was offered to the lanes, seen by the worker taking it through the lanes' own publication
+    private long queuedAt;
+
+    public NewPaymentRequest(String correlationId, BigDecimal amount) {
+        this(correlationId, amount, 0);
+    }
+
+    public NewPaymentRequest(String correlationId, BigDecimal amount, int attempts) {
+        this(false, 0, 0, 0, attempts);
+        this.correlationId = correlationId;
+        this.amount = amount;
+    }
+
+    private NewPaymentRequest(boolean compact, long idMostSigBits, long idLeastSigBits, long amountCents, int attempts) {
+        this.compact = compact;
+        this.idMostSigBits = idMostSigBits;
+        this.idLeastSigBits = idLeastSigBits;
+        this.amountCents = amountCents;
+        this.attempts = attempts;
+    }
+
+    /**
+     * A request for the lowercase UUID made of the given longs and an amount of exactly two decimals.
+     */
+    public static NewPaymentRequest compact(long idMostSigBits, long idLeastSigBits, long amountCents) {
+        return new NewPaymentRequest(true, idMostSigBits, idLeastSigBits, amountCents, 0);
+    }
+
+    public boolean isCompact() {
+        return compact;
+    }
+
+    public long idMostSigBits() {
+        return idMostSigBits;
+    }
+
+    public long idLeastSigBits() {
+        return idLeastSigBits;
+    }
+
+    public long amountCents() {
+        return amountCents;
+    }
+
+    public String correlationId() {
+        String id = correlationId;
+        if (id == null && compact) {
+            correlationId = id = new UUID(idMostSigBits, idLeastSigBits).toString();
+        }
+        return id;
+    }
+
+    public BigDecimal amount() {
+        BigDecimal value = amount;
+        if (value == null && compact) {
+            amount = value = BigDecimal.valueOf(amountCents, CENTS_SCALE);
+        }
+        return value;
+    }
+
+    public int attempts() {
+        return attempts;
+    }
+
+    long queuedAt() {
+        return queuedAt;
+    }
+
+    void queuedAt(long nanoTime) {
+        this.queuedAt = nanoTime;
+    }
+
+    public NewPaymentRequest retried() {
+        NewPaymentRequest retried = new NewPaymentRequest(compact, idMostSigBits, idLeastSigBits, amountCents, attempts + 1);
+        retried.correlationId = correlationId;
+        retried.amount = amount;
+        return retried;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof NewPaymentRequest that
+                && attempts == that.attempts
+                && Objects.equals(correlationId(), that.correlationId())
+                && Objects.equals(amount(), that.amount());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(correlationId(), amount(), attempts);
+    }
+
+    @Override
+    public String toString() {
+        return "NewPaymentRequest[correlationId=" + correlationId() + ", amount=" + amount() + ", attempts=" + attempts + "]";
     }
 
-}
\ No newline at end of file
+}
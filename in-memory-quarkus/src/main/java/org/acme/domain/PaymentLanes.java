@@ -0,0 +1,128 @@
+package org.acme.domain;
+
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The payments waiting for a worker, in two lanes of their own depth: fresh ones, as they were
+ * accepted, and retries, once their backoff elapsed.
+ * <p>
+ * Out of every {@code freshWeight + retryWeight} payments taken, {@code freshWeight} come from the
+ * fresh lane first and {@code retryWeight} from the retry lane first, either lane standing in for the
+ * other while it's empty; a retry weight of zero only takes retries when there's nothing fresh. So
+ * retries can't crowd fresh payments out, nor be starved by them. Workers wait on a semaphore counting
+ * the payments in both lanes, so idle lanes cost no CPU, and take as many as are there, up to a batch,
+ * for a single wake-up.
+ */
+final class PaymentLanes {
+
+    private final RingBuffer<NewPaymentRequest> fresh;
+    private final RingBuffer<NewPaymentRequest> retries;
+    private final int freshWeight;
+    private final int cycle;
+    private final AtomicLong taken = new AtomicLong();
+    private final Semaphore published = new Semaphore(0);
+    private volatile boolean closed;
+
+    PaymentLanes(int freshDepth, int retryDepth, int freshWeight, int retryWeight) {
+        if (freshWeight <= 0 || retryWeight < 0) {
+            throw new IllegalArgumentException("The fresh weight must be positive and the retry weight non-negative");
+        }
+        this.fresh = new RingBuffer<>(freshDepth);
+        this.retries = new RingBuffer<>(retryDepth);
+        this.freshWeight = freshWeight;
+        this.cycle = retryWeight == 0 ? 0 : freshWeight + retryWeight;
+    }
+
+    boolean offerFresh(NewPaymentRequest request) {
+        return offer(fresh, request);
+    }
+
+    boolean offerRetry(NewPaymentRequest request) {
+        return offer(retries, request);
+    }
+
+    private boolean offer(RingBuffer<NewPaymentRequest> lane, NewPaymentRequest request) {
+        if (!lane.offer(request)) {
+            return false;
+        }
+        published.release();
+        return true;
+    }
+
+    int freshSize() {
+        return fresh.size();
+    }
+
+    int retrySize() {
+        return retries.size();
+    }
+
+    /**
+     * Waits for at least one payment and moves up to {@code batch.length} of them into the batch.
+     * Returns how many it moved, none once the lanes are closed.
+     */
+    int drainTo(NewPaymentRequest[] batch) throws InterruptedException {
+        if (closed) {
+            return 0;
+        }
+        published.acquire();
+        if (closed) {
+            // passed on, so every worker waiting gets woken in turn
+            published.release();
+            return 0;
+        }
+        int count = 1;
+        int more = Math.min(published.availablePermits(), batch.length - 1);
+        if (more > 0 && published.tryAcquire(more)) {
+            count += more;
+        }
+        for (int i = 0; i < count; i++) {
+            batch[i] = take();
+        }
+        return count;
+    }
+
+    /**
+     * Wakes the workers waiting in {@link #drainTo(NewPaymentRequest[])} with nothing, as well as any
+     * later one. Payments can still be offered, but nothing is taken anymore.
+     */
+    void close() {
+        closed = true;
+        published.release();
+    }
+
+    /**
+     * Moves whatever is left in either lane into the list, without waiting for anything; meant for
+     * closed lanes.
+     */
+    void drainRemaining(List<NewPaymentRequest> pending) {
+        for (NewPaymentRequest request = fresh.poll(); request != null; request = fresh.poll()) {
+            pending.add(request);
+        }
+        for (NewPaymentRequest request = retries.poll(); request != null; request = retries.poll()) {
+            pending.add(request);
+        }
+    }
+
+    // only called with a permit, so a payment was offered to one of the lanes, and is at most about to
+    // be published; yielding rather than spinning, as its producer may be a virtual thread waiting for
+    // the very carrier thread this one runs on
+    private NewPaymentRequest take() {
+        boolean freshFirst = cycle == 0 || Math.floorMod(taken.getAndIncrement(), cycle) < freshWeight;
+        RingBuffer<NewPaymentRequest> first = freshFirst ? fresh : retries;
+        RingBuffer<NewPaymentRequest> second = freshFirst ? retries : fresh;
+        while (true) {
+            NewPaymentRequest request = first.poll();
+            if (request == null) {
+                request = second.poll();
+            }
+            if (request != null) {
+                return request;
+            }
+            Thread.yield();
+        }
+    }
+
+}
@@ -3,6 +3,7 @@ package org.acme.domain;
 import static java.util.Optional.ofNullable;
 
 import java.time.Instant;
+import java.util.List;
 
 import org.eclipse.microprofile.rest.client.inject.RestClient;
 import org.slf4j.Logger;
@@ -18,12 +19,15 @@ public class PaymentMiddleware {
     private static final Logger LOGGER = LoggerFactory.getLogger(PaymentMiddleware.class);
 
     private final InternalPaymentsManagement internalPaymentsManagement;
+    private final PaymentStats paymentStats;
 
     @Inject
     public PaymentMiddleware(
             @RestClient
-            InternalPaymentsManagement internalPaymentsManagement) {
+            InternalPaymentsManagement internalPaymentsManagement,
+            PaymentStats paymentStats) {
         this.internalPaymentsManagement = internalPaymentsManagement;
+        this.paymentStats = paymentStats;
     }
 
     @Startup
@@ -55,7 +59,22 @@ public class PaymentMiddleware {
         }
     }
 
+    /**
+     * Queues the payments at the peer instance, returning how many it took, or -1 when it couldn't be
+     * reached.
+     */
+    public int handOff(List<NewPaymentRequest> pending) {
+        try {
+            return internalPaymentsManagement.enqueuePendingPayments(
+                    pending.stream().map(PendingPayment::of).toList());
+        } catch (Exception e) {
+            LOGGER.warn("Error handing pending payments off to the peer instance: {}", e.getMessage(), e);
+            return -1;
+        }
+    }
+
     public PaymentsSummary getSummary(Instant from, Instant to) {
+        long start = System.nanoTime();
         try {
             return internalPaymentsManagement.getSummary(
                     ofNullable(from)
@@ -67,6 +86,8 @@ public class PaymentMiddleware {
         } catch (Exception e) {
             //LOGGER.warn("Error fetching payment summary: {}", e.getMessage(), e);
             return PaymentsSummary.ZERO;
+        } finally {
+            paymentStats.recordPeerSummary(System.nanoTime() - start);
         }
     }
 }
@@ -3,75 +3,116 @@ package org.acme.domain;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
-import org.eclipse.microprofile.rest.client.inject.RestClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Map;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 
 @ApplicationScoped
 public class PaymentProcessor {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(PaymentProcessor.class);
-    private final DefaultRemotePaymentProcessor defaultRemotePaymentProcessor;
-    private final FallbackRemotePaymentProcessor fallbackRemotePaymentProcessor;
-    private final int retries;
-    private final Map<String, AtomicInteger> errorCounter = new ConcurrentHashMap<>();
+    private static final CompletionStage<Outcome> NOT_SENT = CompletableFuture.completedStage(Outcome.NOT_SENT);
+    private final RemotePaymentClient remotePaymentClient;
+    private final ProcessorHealthMonitor processorHealthMonitor;
+    private final PaymentStats paymentStats;
+    private final CircuitBreaker defaultCircuitBreaker;
+    private final CircuitBreaker fallbackCircuitBreaker;
 
     @Inject
     public PaymentProcessor(
-            @RestClient
-            DefaultRemotePaymentProcessor defaultRemotePaymentProcessor,
-            @RestClient
-            FallbackRemotePaymentProcessor fallbackRemotePaymentProcessor,
-            @ConfigProperty(name = "retries.before.fallback", defaultValue = "16")
-            int retries
+            RemotePaymentClient remotePaymentClient,
+            ProcessorHealthMonitor processorHealthMonitor,
+            PaymentStats paymentStats,
+            @ConfigProperty(name = "circuit-breaker.window", defaultValue = "20")
+            int window,
+            @ConfigProperty(name = "circuit-breaker.failure-ratio", defaultValue = "0.5")
+            double failureRatio,
+            @ConfigProperty(name = "circuit-breaker.open-duration", defaultValue = "1s")
+            Duration openDuration,
+            @ConfigProperty(name = "circuit-breaker.slow-call", defaultValue = "1s")
+            Duration slowCall
     ) {
-        this.defaultRemotePaymentProcessor = defaultRemotePaymentProcessor;
-        this.fallbackRemotePaymentProcessor = fallbackRemotePaymentProcessor;
-        this.retries = retries;
+        this.remotePaymentClient = remotePaymentClient;
+        this.processorHealthMonitor = processorHealthMonitor;
+        this.paymentStats = paymentStats;
+        this.defaultCircuitBreaker = new CircuitBreaker(RemotePaymentName.DEFAULT, window, failureRatio, openDuration, slowCall);
+        this.fallbackCircuitBreaker = new CircuitBreaker(RemotePaymentName.FALLBACK, window, failureRatio, openDuration, slowCall);
     }
 
-    public Optional<Payment> sendPayment(NewPaymentRequest newPaymentRequest) {
-        try {
-            RemotePaymentRequest request = newPaymentRequest.toNewPayment();
-            var response = defaultRemotePaymentProcessor.processPayment(request);
-            return switch (response.getStatus()) {
-                case 200 -> {
-                    errorCounter.remove(newPaymentRequest.correlationId());
-                    yield Optional.of(RemotePaymentName.DEFAULT.toPayment(request));
-                }
-                case 500 -> errorCounter
-                        .computeIfAbsent(newPaymentRequest.correlationId(), k -> new AtomicInteger())
-                        .incrementAndGet() > retries ? fallbackSendPayment(newPaymentRequest) : Optional.empty();
-                default -> Optional.empty();
-            };
-        } catch (RuntimeException e) {
-            errorCounter
-                    .computeIfAbsent(newPaymentRequest.correlationId(), k -> new AtomicInteger())
-                    .incrementAndGet();
-            return Optional.empty();
+    /**
+     * Sends the payment to the default processor unless its health or its circuit breaker rule it out,
+     * then to the fallback one under the same conditions. Completes without a payment when neither took
+     * it, and never exceptionally.
+     */
+    public CompletionStage<Outcome> sendPayment(NewPaymentRequest newPaymentRequest) {
+        Optional<RemotePaymentName> preferred = processorHealthMonitor.preferred();
+        if (preferred.isEmpty()) {
+            return NOT_SENT;
         }
+        if (preferred.get() == RemotePaymentName.DEFAULT) {
+            long permit = defaultCircuitBreaker.tryAcquire();
+            if (permit != CircuitBreaker.REFUSED) {
+                return send(RemotePaymentName.DEFAULT, defaultCircuitBreaker, permit, newPaymentRequest);
+            }
+        }
+        return fallbackSendPayment(newPaymentRequest);
     }
 
-    public Optional<Payment> fallbackSendPayment(NewPaymentRequest newPaymentRequest) {
-        final RemotePaymentRequest request = newPaymentRequest.toNewPayment();
-        try {
-            var response = fallbackRemotePaymentProcessor.processPayment(request);
-            return switch (response.getStatus()) {
-                case 200 -> {
-                    errorCounter.remove(newPaymentRequest.correlationId());
-                    yield Optional.of(RemotePaymentName.FALLBACK.toPayment(request));
-                }
-                default -> Optional.empty();
-            };
-        } catch (RuntimeException e) {
-            return Optional.empty();
+    public CompletionStage<Outcome> fallbackSendPayment(NewPaymentRequest newPaymentRequest) {
+        long permit = fallbackCircuitBreaker.tryAcquire();
+        if (permit == CircuitBreaker.REFUSED) {
+            return NOT_SENT;
         }
+        return send(RemotePaymentName.FALLBACK, fallbackCircuitBreaker, permit, newPaymentRequest);
+    }
+
+    private CompletionStage<Outcome> send(RemotePaymentName processor,
+                                          CircuitBreaker circuitBreaker,
+                                          long permit,
+                                          NewPaymentRequest newPaymentRequest) {
+        long requestedAt = System.currentTimeMillis();
+        byte[] request = RemotePaymentRequestWriter.write(newPaymentRequest, requestedAt);
+        long start = System.nanoTime();
+        return remotePaymentClient.post(processor, request).handle((status, failure) -> {
+            paymentStats.recordRemoteCall(processor, System.nanoTime() - start);
+            if (failure != null) {
+                circuitBreaker.onFailure(permit);
+                LOGGER.debug("Error sending payment to the {} processor: {}", processor.value(), failure.getMessage());
+                return Outcome.FAILED;
+            }
+            if (status >= 500) {
+                circuitBreaker.onFailure(permit);
+                return Outcome.FAILED;
+            }
+            circuitBreaker.onSuccess(permit, System.nanoTime() - start);
+            return status == 200
+                    ? new Outcome(true, Optional.of(processor.toPayment(newPaymentRequest, Instant.ofEpochMilli(requestedAt))))
+                    : Outcome.FAILED;
+        });
+    }
+
+    /**
+     * Whether sending holds the calling thread until the processor answered.
+     */
+    public boolean isBlocking() {
+        return remotePaymentClient.isBlocking();
+    }
+
+    /**
+     * How sending a payment went: whether it was sent to a processor at all, rather than ruled out by
+     * health or a circuit breaker, and the payment if a processor took it.
+     */
+    public record Outcome(boolean sent, Optional<Payment> payment) {
+
+        public static final Outcome NOT_SENT = new Outcome(false, Optional.empty());
+        public static final Outcome FAILED = new Outcome(true, Optional.empty());
+
     }
 
-}
\ No newline at end of file
+}
@@ -10,11 +10,13 @@ public class PaymentService {
 
     private final Payments payments;
     private final PaymentMiddleware paymentMiddleware;
+    private final PaymentStats paymentStats;
 
     @Inject
-    public PaymentService(Payments payments, PaymentMiddleware paymentMiddleware) {
+    public PaymentService(Payments payments, PaymentMiddleware paymentMiddleware, PaymentStats paymentStats) {
         this.payments = payments;
         this.paymentMiddleware = paymentMiddleware;
+        this.paymentStats = paymentStats;
     }
 
     public PaymentsSummary getSummary(Instant from, Instant to) {
@@ -23,7 +25,12 @@ public class PaymentService {
     }
 
     public PaymentsSummary getInternalSummary(Instant from, Instant to) {
-        return payments.getSummary(from, to);
+        long start = System.nanoTime();
+        try {
+            return payments.getSummary(from, to);
+        } finally {
+            paymentStats.recordSummary(System.nanoTime() - start);
+        }
     }
 
     public void purgePayments() {
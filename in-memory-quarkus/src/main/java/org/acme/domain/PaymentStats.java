@@ -0,0 +1,103 @@
+package org.acme.domain;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import jakarta.enterprise.context.ApplicationScoped;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Where the time of a payment goes, and how many took each way, recorded on the hot paths without locks
+ * or allocation: how long payments waited in the lanes, each processor's round trips, and how long
+ * summaries took here and at the peer.
+ */
+@ApplicationScoped
+public class PaymentStats {
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+    private final LatencyHistogram defaultRemoteCall = new LatencyHistogram();
+    private final LatencyHistogram fallbackRemoteCall = new LatencyHistogram();
+    private final LatencyHistogram summary = new LatencyHistogram();
+    private final LatencyHistogram peerSummary = new LatencyHistogram();
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+
+    public void recordQueueWait(long nanos) {
+        queueWait.record(nanos);
+    }
+
+    public void recordRemoteCall(RemotePaymentName processor, long nanos) {
+        (processor == RemotePaymentName.DEFAULT ? defaultRemoteCall : fallbackRemoteCall).record(nanos);
+    }
+
+    public void recordSummary(long nanos) {
+        summary.record(nanos);
+    }
+
+    public void recordPeerSummary(long nanos) {
+        peerSummary.record(nanos);
+    }
+
+    public void countAdmission(Admission admission) {
+        (admission.accepted() ? admitted : rejected).increment();
+    }
+
+    public void countRetry() {
+        retried.increment();
+    }
+
+    public Snapshot snapshot() {
+        Map<String, LatencyHistogram.Summary> latencies = new LinkedHashMap<>();
+        latencies.put("queue-wait", queueWait.summary());
+        latencies.put("remote-call-default", defaultRemoteCall.summary());
+        latencies.put("remote-call-fallback", fallbackRemoteCall.summary());
+        latencies.put("summary", summary.summary());
+        latencies.put("peer-summary", peerSummary.summary());
+        Map<String, Long> counters = new LinkedHashMap<>();
+        counters.put("admitted", admitted.sum());
+        counters.put("rejected", rejected.sum());
+        counters.put("retried", retried.sum());
+        return new Snapshot(latencies, counters);
+    }
+
+    /**
+     * The snapshot in the Prometheus text format: a summary per latency, in seconds, and a counter per
+     * count.
+     */
+    public String prometheus() {
+        Snapshot snapshot = snapshot();
+        StringBuilder text = new StringBuilder(2048);
+        text.append("# TYPE payments_latency_seconds summary\n");
+        snapshot.latencies().forEach((name, latency) -> {
+            String label = "{path=\"" + name.replace('-', '_') + "\"";
+            long[] values = {latency.p50Micros(), latency.p90Micros(), latency.p99Micros(), latency.p999Micros()};
+            for (int i = 0; i < QUANTILES.length; i++) {
+                text.append("payments_latency_seconds").append(label)
+                        .append(",quantile=\"").append(QUANTILES[i]).append("\"} ")
+                        .append(seconds(values[i])).append('\n');
+            }
+            text.append("payments_latency_seconds_sum").append(label).append("} ")
+                    .append(seconds(latency.meanMicros() * latency.count())).append('\n');
+            text.append("payments_latency_seconds_count").append(label).append("} ")
+                    .append(latency.count()).append('\n');
+        });
+        snapshot.counters().forEach((name, count) -> text
+                .append("# TYPE payments_").append(name).append("_total counter\n")
+                .append("payments_").append(name).append("_total ").append(count).append('\n'));
+        return text.toString();
+    }
+
+    private static String seconds(long micros) {
+        return String.format(Locale.ROOT, "%.6f", micros / 1_000_000.0);
+    }
+
+    @RegisterForReflection
+    public record Snapshot(Map<String, LatencyHistogram.Summary> latencies, Map<String, Long> counters) {
+    }
+
+}
@@ -3,6 +3,7 @@ package org.acme.domain;
 import io.quarkus.runtime.annotations.RegisterForReflection;
 
 import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.util.Objects;
 import java.util.function.Supplier;
 
@@ -24,7 +25,19 @@ public record PaymentSummary(Long totalRequests,
     }
 
     public static PaymentSummary of(Number totalRequests, Number totalAmount) {
-        return new PaymentSummary(totalRequests.longValue(), BigDecimal.valueOf(totalAmount.doubleValue()));
+        return new PaymentSummary(totalRequests.longValue(), toBigDecimal(totalAmount));
+    }
+
+    private static BigDecimal toBigDecimal(Number amount) {
+        return switch (amount) {
+            case BigDecimal decimal -> decimal;
+            case BigInteger integer -> new BigDecimal(integer);
+            case Long value -> BigDecimal.valueOf(value);
+            case Integer value -> BigDecimal.valueOf(value);
+            case Short value -> BigDecimal.valueOf(value);
+            case Byte value -> BigDecimal.valueOf(value);
+            default -> BigDecimal.valueOf(amount.doubleValue());
+        };
     }
 
     public static PaymentSummary of(Supplier<? extends Number> totalRequestsSupplier,
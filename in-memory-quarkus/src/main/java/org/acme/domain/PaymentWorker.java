@@ -1,5 +1,6 @@
 package org.acme.domain;
 
+import io.quarkus.runtime.Shutdown;
 import io.quarkus.runtime.Startup;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
@@ -7,7 +8,18 @@ import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.concurrent.LinkedBlockingQueue;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.IntStream;
 
 @ApplicationScoped
@@ -17,58 +29,384 @@ public class PaymentWorker {
 
     private final Payments payments;
     private final PaymentProcessor paymentProcessor;
-    private final LinkedBlockingQueue<NewPaymentRequest> queue;
+    // failed requests wait here until their backoff elapsed, rather than going straight back to the lanes
+    private final DelayQueue<ScheduledRetry> retries = new DelayQueue<>();
+    private final RetryBackoff retryBackoff;
+    // decides how many payments are in flight to the processors at once
+    private final ConcurrencyLimiter concurrencyLimiter;
+    private final AdmissionControl admissionControl;
+    private final PaymentStats paymentStats;
+    private final PaymentMiddleware paymentMiddleware;
+    // calls may complete on an event loop, which storing a payment could block on the store's lock or
+    // the journal
+    private final ExecutorService completions = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final int queueBuffer;
+    private final int retryQueueBuffer;
+    private final int freshWeight;
+    private final int retryWeight;
+    // swapped as a whole on purge, so requests still in the old ones are left to the garbage collector
+    private volatile PaymentLanes lanes;
     private final int workers;
+    private final int drainBatch;
+    private final Duration shutdownDeadline;
+    private final int handOffBatch;
+    private final CountDownLatch workersRunning;
+    private volatile Thread retryReleaser;
+    // set once on shutdown: nothing is admitted anymore and workers stop taking payments
+    private volatile boolean stopping;
+    // admissions between checking for shutdown and offering to the lanes, which shutdown waits out
+    // before draining the lanes
+    private final AtomicInteger offering = new AtomicInteger();
 
     @Inject
     public PaymentWorker(Payments payments,
                          PaymentProcessor paymentProcessor,
+                         PaymentStats paymentStats,
+                         PaymentMiddleware paymentMiddleware,
                          @ConfigProperty(name = "worker.queue-buffer", defaultValue = "10000")
                          int queueBuffer,
+                         @ConfigProperty(name = "worker.retry.queue-buffer", defaultValue = "10000")
+                         int retryQueueBuffer,
+                         @ConfigProperty(name = "worker.lanes.fresh-weight", defaultValue = "4")
+                         int freshWeight,
+                         @ConfigProperty(name = "worker.lanes.retry-weight", defaultValue = "1")
+                         int retryWeight,
                          @ConfigProperty(name = "worker.size", defaultValue = "10")
-                         int workers
+                         int workers,
+                         @ConfigProperty(name = "worker.drain-batch", defaultValue = "8")
+                         int drainBatch,
+                         @ConfigProperty(name = "worker.retry.initial-backoff", defaultValue = "10ms")
+                         Duration initialBackoff,
+                         @ConfigProperty(name = "worker.retry.max-backoff", defaultValue = "1s")
+                         Duration maxBackoff,
+                         @ConfigProperty(name = "worker.retry.jitter", defaultValue = "0.5")
+                         double jitter,
+                         @ConfigProperty(name = "worker.concurrency.min-limit", defaultValue = "1")
+                         int minLimit,
+                         @ConfigProperty(name = "worker.concurrency.initial-limit", defaultValue = "4")
+                         int initialLimit,
+                         @ConfigProperty(name = "worker.concurrency.max-limit", defaultValue = "64")
+                         int maxLimit,
+                         @ConfigProperty(name = "worker.concurrency.tolerance", defaultValue = "2.0")
+                         double tolerance,
+                         @ConfigProperty(name = "worker.concurrency.backoff-ratio", defaultValue = "0.9")
+                         double backoffRatio,
+                         @ConfigProperty(name = "admission.latency-budget", defaultValue = "1s")
+                         Duration latencyBudget,
+                         @ConfigProperty(name = "worker.shutdown.deadline", defaultValue = "5s")
+                         Duration shutdownDeadline,
+                         @ConfigProperty(name = "worker.shutdown.hand-off-batch", defaultValue = "500")
+                         int handOffBatch
     ) {
         this.payments = payments;
         this.paymentProcessor = paymentProcessor;
-        this.queue = new LinkedBlockingQueue<>(queueBuffer);
+        this.paymentStats = paymentStats;
+        this.paymentMiddleware = paymentMiddleware;
+        this.queueBuffer = queueBuffer;
+        this.retryQueueBuffer = retryQueueBuffer;
+        this.freshWeight = freshWeight;
+        this.retryWeight = retryWeight;
+        this.lanes = newLanes();
         this.workers = workers;
+        // a worker sends the payments of its batch one after the other, which a blocking client would
+        // leave queued behind a single slow call while other workers are idle
+        this.drainBatch = paymentProcessor.isBlocking() ? 1 : drainBatch;
+        this.shutdownDeadline = shutdownDeadline;
+        this.handOffBatch = handOffBatch;
+        this.workersRunning = new CountDownLatch(workers);
+        this.retryBackoff = new RetryBackoff(initialBackoff, maxBackoff, jitter);
+        this.concurrencyLimiter = new ConcurrencyLimiter(Math.min(minLimit, maxLimit), initialLimit, maxLimit, tolerance, backoffRatio);
+        this.admissionControl = new AdmissionControl(latencyBudget, workers * this.drainBatch);
     }
 
     @Startup
     public void start() {
-        LOGGER.info("Starting worker threads with buffer size: {} and worker count: {}", queue.remainingCapacity(), workers);
+        LOGGER.info("Starting worker threads with buffer size: {} (fresh) and {} (retries), weighted {}:{}, and worker count: {}",
+                queueBuffer, retryQueueBuffer, freshWeight, retryWeight, workers);
         IntStream.range(0, workers).forEach(i ->
                 Thread.startVirtualThread(this::consumeQueue)
         );
+        this.retryReleaser = Thread.startVirtualThread(this::releaseRetries);
         LOGGER.info("Worker threads started successfully.");
     }
 
     private void consumeQueue() {
+        NewPaymentRequest[] batch = new NewPaymentRequest[drainBatch];
+        try {
+            // a batch taken before shutting down is still sent, the lanes are closed for the next one
+            while (!stopping) {
+                PaymentLanes current = this.lanes;
+                int drained = drain(current, batch);
+                admissionControl.recordDrained(recordDrained(batch, drained), current.freshSize() == 0);
+                for (int i = 0; i < drained; i++) {
+                    // the rest of the batch was purged in the meantime
+                    if (current == this.lanes) {
+                        processPayment(batch[i]);
+                    }
+                    batch[i] = null;
+                }
+            }
+        } finally {
+            workersRunning.countDown();
+        }
+    }
+
+    // records how long the batch waited, and counts the fresh payments in it
+    private int recordDrained(NewPaymentRequest[] batch, int drained) {
+        long now = System.nanoTime();
+        int fresh = 0;
+        for (int i = 0; i < drained; i++) {
+            paymentStats.recordQueueWait(now - batch[i].queuedAt());
+            if (batch[i].attempts() == 0) {
+                fresh++;
+            }
+        }
+        return fresh;
+    }
+
+    private void releaseRetries() {
         while (true) {
-            NewPaymentRequest paymentRequest = takeNewPaymentRequest();
-            processPayment(paymentRequest);
+            ScheduledRetry retry;
+            try {
+                retry = retries.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            // scheduled before a purge
+            if (retry.lanes != this.lanes) {
+                continue;
+            }
+            retry.request.queuedAt(System.nanoTime());
+            if (!retry.lanes.offerRetry(retry.request)) {
+                retry(retry.request);
+            }
         }
     }
 
-    private NewPaymentRequest takeNewPaymentRequest() {
+    private int drain(PaymentLanes current, NewPaymentRequest[] batch) {
         try {
-            return this.queue.take();
+            return current.drainTo(batch);
         } catch (InterruptedException e) {
             throw new RuntimeException(e);
         }
     }
 
+    // the worker only waits for room under the concurrency limit, the outcome is handled on a thread of
+    // its own once the call completes
     private void processPayment(NewPaymentRequest paymentRequest) {
-        paymentProcessor.sendPayment(paymentRequest)
-                .ifPresentOrElse(payments::add, () -> this.accept(paymentRequest));
+        if (payments.contains(paymentRequest.correlationId())) {
+            return;
+        }
+        try {
+            concurrencyLimiter.acquire();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+        long start = System.nanoTime();
+        CompletionStage<PaymentProcessor.Outcome> sending;
+        try {
+            sending = paymentProcessor.sendPayment(paymentRequest);
+        } catch (RuntimeException e) {
+            sending = CompletableFuture.failedStage(e);
+        }
+        sending.whenCompleteAsync((outcome, failure) -> complete(paymentRequest, start, outcome, failure), completions);
+    }
+
+    // the permit is released last, so once none is held every payment is either stored or scheduled
+    // for a retry, which is what shutting down waits for
+    private void complete(NewPaymentRequest paymentRequest, long start, PaymentProcessor.Outcome outcome, Throwable failure) {
+        long rttNanos = System.nanoTime() - start;
+        if (failure != null) {
+            LOGGER.warn("Error sending payment {}, retrying it: {}", paymentRequest.correlationId(), failure.getMessage(), failure);
+            outcome = PaymentProcessor.Outcome.NOT_SENT;
+        }
+        try {
+            store(paymentRequest, outcome);
+        } finally {
+            // only calls that went out tell how the processors are doing
+            if (outcome.sent()) {
+                concurrencyLimiter.release(rttNanos, outcome.payment().isPresent());
+            } else {
+                concurrencyLimiter.release();
+            }
+        }
+    }
+
+    private void store(NewPaymentRequest paymentRequest, PaymentProcessor.Outcome outcome) {
+        try {
+            if (outcome.payment().isPresent()) {
+                payments.add(outcome.payment().get());
+                return;
+            }
+        } catch (RuntimeException e) {
+            LOGGER.warn("Error storing payment {}, retrying it: {}", paymentRequest.correlationId(), e.getMessage(), e);
+        }
+        retry(paymentRequest);
+    }
+
+    public ConcurrencyLimiter.Stats concurrencyStats() {
+        return concurrencyLimiter.stats();
+    }
+
+    private void retry(NewPaymentRequest paymentRequest) {
+        paymentStats.countRetry();
+        retries.put(new ScheduledRetry(paymentRequest.retried(),
+                System.nanoTime() + retryBackoff.delayNanos(paymentRequest.attempts()),
+                this.lanes));
     }
 
     public boolean accept(NewPaymentRequest paymentRequest) {
-        return this.queue.offer(paymentRequest);
+        offering.incrementAndGet();
+        try {
+            if (stopping) {
+                return false;
+            }
+            paymentRequest.queuedAt(System.nanoTime());
+            return this.lanes.offerFresh(paymentRequest);
+        } finally {
+            offering.decrementAndGet();
+        }
     }
 
+    /**
+     * Queues the payment, unless the ones already queued would keep it waiting longer than the latency
+     * budget, or there's no room left for it.
+     */
+    public Admission admit(NewPaymentRequest paymentRequest) {
+        Admission admission;
+        offering.incrementAndGet();
+        try {
+            admission = tryAdmit(paymentRequest);
+        } finally {
+            offering.decrementAndGet();
+        }
+        paymentStats.countAdmission(admission);
+        return admission;
+    }
+
+    private Admission tryAdmit(NewPaymentRequest paymentRequest) {
+        if (stopping) {
+            return Admission.rejected(Duration.ZERO);
+        }
+        PaymentLanes current = this.lanes;
+        Duration retryAfter = admissionControl.retryAfter(current.freshSize());
+        if (!retryAfter.isZero()) {
+            return Admission.rejected(retryAfter);
+        }
+        paymentRequest.queuedAt(System.nanoTime());
+        if (current.offerFresh(paymentRequest)) {
+            return Admission.ACCEPTED;
+        }
+        return Admission.rejected(admissionControl.retryAfter(current.freshSize()));
+    }
+
+    /**
+     * Queues payments another instance already accepted, bypassing admission control. Returns how many
+     * it took, none once shutting down.
+     */
+    public int enqueue(List<NewPaymentRequest> paymentRequests) {
+        int queued = 0;
+        for (NewPaymentRequest paymentRequest : paymentRequests) {
+            if (accept(paymentRequest)) {
+                queued++;
+            }
+        }
+        return queued;
+    }
+
+    /**
+     * Stops admitting payments and taking them from the lanes, gives the calls in flight until the
+     * deadline to complete, then hands whatever is still queued or waiting for a retry off to the peer
+     * instance, in batches. The payments were already answered 201, so they must be sent by someone.
+     * <p>
+     * Nothing may reach the lanes or the retries once they are drained: admissions already past the
+     * shutdown check are waited out, a completed call schedules its retry before giving its permit back,
+     * and the thread moving due retries to the lanes is stopped first.
+     */
+    @Shutdown
+    public void stop() {
+        stopping = true;
+        PaymentLanes current = this.lanes;
+        current.close();
+        long deadline = System.nanoTime() + shutdownDeadline.toNanos();
+        try {
+            if (!workersRunning.await(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)
+                    || !concurrencyLimiter.awaitIdle(deadline - System.nanoTime())) {
+                LOGGER.warn("Payments still in flight to the processors after {}, their outcome is lost", shutdownDeadline);
+            }
+            while (offering.get() > 0) {
+                Thread.yield();
+            }
+            Thread releaser = this.retryReleaser;
+            if (releaser != null) {
+                releaser.interrupt();
+                releaser.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        completions.shutdown();
+        List<NewPaymentRequest> pending = new ArrayList<>();
+        current.drainRemaining(pending);
+        for (ScheduledRetry retry : retries) {
+            if (retry.lanes == current) {
+                pending.add(retry.request);
+            }
+        }
+        retries.clear();
+        handOff(pending);
+    }
+
+    private void handOff(List<NewPaymentRequest> pending) {
+        if (pending.isEmpty()) {
+            return;
+        }
+        int handedOff = 0;
+        for (int from = 0; from < pending.size(); from += handOffBatch) {
+            int queued = paymentMiddleware.handOff(pending.subList(from, Math.min(from + handOffBatch, pending.size())));
+            if (queued < 0) {
+                // unreachable, the rest would only wait for the same timeout
+                break;
+            }
+            handedOff += queued;
+        }
+        if (handedOff < pending.size()) {
+            LOGGER.warn("Handed {} of {} pending payments off to the peer instance, the rest are lost", handedOff, pending.size());
+        } else {
+            LOGGER.info("Handed {} pending payments off to the peer instance", handedOff);
+        }
+    }
+
+    private PaymentLanes newLanes() {
+        return new PaymentLanes(queueBuffer, retryQueueBuffer, freshWeight, retryWeight);
+    }
+
+    /**
+     * Swaps in empty lanes. A request offered before the swap lands in the old lanes and is dropped
+     * with them, one offered after lands in the new ones. Retries scheduled before the swap are dropped once
+     * due.
+     */
     public void purge() {
-        this.queue.clear();
+        PaymentLanes purged = this.lanes;
+        this.lanes = newLanes();
+        purged.close();
+    }
+
+    private record ScheduledRetry(NewPaymentRequest request,
+                                  long dueAt,
+                                  PaymentLanes lanes) implements Delayed {
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueAt - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(dueAt, ((ScheduledRetry) other).dueAt);
+        }
     }
 
 }
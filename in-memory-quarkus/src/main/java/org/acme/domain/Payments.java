@@ -6,6 +6,8 @@ public interface Payments {
 
     void add(Payment payment);
 
+    boolean contains(String correlationId);
+
     void purge();
 
     PaymentsSummary getSummary(Instant from, Instant to);
@@ -0,0 +1,22 @@
+package org.acme.domain;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+import java.math.BigDecimal;
+
+/**
+ * A payment already accepted by one instance but not yet sent, as it hands it to the other one on
+ * shutdown.
+ */
+@RegisterForReflection
+public record PendingPayment(String correlationId, BigDecimal amount) {
+
+    public static PendingPayment of(NewPaymentRequest request) {
+        return new PendingPayment(request.correlationId(), request.amount());
+    }
+
+    public NewPaymentRequest toNewPaymentRequest() {
+        return new NewPaymentRequest(correlationId, amount);
+    }
+
+}
@@ -0,0 +1,159 @@
+package org.acme.domain;
+
+import io.quarkus.runtime.Startup;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.rest.client.inject.RestClient;
+import org.jboss.resteasy.reactive.RestResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Caches the health the processors report, so routing a payment never waits on a health check.
+ * <p>
+ * The processors allow one health check every five seconds, so only the instance configured with
+ * {@code processors.health.poller=true} polls them; the other one reads what it found through the
+ * internal API, and only polls the processors itself while that instance can't be reached.
+ */
+@ApplicationScoped
+public class ProcessorHealthMonitor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProcessorHealthMonitor.class);
+
+    private final DefaultRemotePaymentProcessor defaultRemotePaymentProcessor;
+    private final FallbackRemotePaymentProcessor fallbackRemotePaymentProcessor;
+    private final InternalPaymentsManagement internalPaymentsManagement;
+    private final Duration defaultInterval;
+    private final Duration fallbackInterval;
+    private final boolean poller;
+    private final long maxResponseTime;
+
+    private volatile ServiceHealth defaultHealth = ServiceHealth.UNKNOWN;
+    private volatile ServiceHealth fallbackHealth = ServiceHealth.UNKNOWN;
+
+    @Inject
+    public ProcessorHealthMonitor(
+            @RestClient
+            DefaultRemotePaymentProcessor defaultRemotePaymentProcessor,
+            @RestClient
+            FallbackRemotePaymentProcessor fallbackRemotePaymentProcessor,
+            @RestClient
+            InternalPaymentsManagement internalPaymentsManagement,
+            @ConfigProperty(name = "default-payment-processor.healthcheck.interval", defaultValue = "5s")
+            Duration defaultInterval,
+            @ConfigProperty(name = "fallback-payment-processor.healthcheck.interval", defaultValue = "5s")
+            Duration fallbackInterval,
+            @ConfigProperty(name = "processors.health.poller", defaultValue = "true")
+            boolean poller,
+            @ConfigProperty(name = "processors.health.max-response-time", defaultValue = "5s")
+            Duration maxResponseTime) {
+        this.defaultRemotePaymentProcessor = defaultRemotePaymentProcessor;
+        this.fallbackRemotePaymentProcessor = fallbackRemotePaymentProcessor;
+        this.internalPaymentsManagement = internalPaymentsManagement;
+        this.defaultInterval = defaultInterval;
+        this.fallbackInterval = fallbackInterval;
+        this.poller = poller;
+        this.maxResponseTime = maxResponseTime.toMillis();
+    }
+
+    @Startup
+    public void start() {
+        if (poller) {
+            LOGGER.info("Polling the processors' health every {} (default) and {} (fallback)", defaultInterval, fallbackInterval);
+            poll(RemotePaymentName.DEFAULT, defaultRemotePaymentProcessor, defaultInterval);
+            poll(RemotePaymentName.FALLBACK, fallbackRemotePaymentProcessor, fallbackInterval);
+        } else {
+            LOGGER.info("Reading the processors' health from the other instance");
+            follow();
+        }
+    }
+
+    private void poll(RemotePaymentName processor, RemotePaymentProcessor remote, Duration interval) {
+        Thread.startVirtualThread(() -> {
+            while (true) {
+                try {
+                    check(processor, remote);
+                    Thread.sleep(interval);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        });
+    }
+
+    private void follow() {
+        Duration interval = defaultInterval.compareTo(fallbackInterval) > 0 ? defaultInterval : fallbackInterval;
+        Thread.startVirtualThread(() -> {
+            while (true) {
+                try {
+                    try {
+                        ProcessorsHealth health = internalPaymentsManagement.getProcessorsHealth();
+                        record(RemotePaymentName.DEFAULT, health.defaultHealth());
+                        record(RemotePaymentName.FALLBACK, health.fallbackHealth());
+                    } catch (RuntimeException e) {
+                        LOGGER.warn("Error reading the processors' health from the other instance, polling them instead: {}", e.getMessage());
+                        check(RemotePaymentName.DEFAULT, defaultRemotePaymentProcessor);
+                        check(RemotePaymentName.FALLBACK, fallbackRemotePaymentProcessor);
+                    }
+                    Thread.sleep(interval);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        });
+    }
+
+    private void check(RemotePaymentName processor, RemotePaymentProcessor remote) {
+        try {
+            RestResponse<ServiceHealth> response = remote.serviceHealth();
+            if (response.getStatus() == 200) {
+                record(processor, response.getEntity());
+            } else {
+                // a 429 means the other instance checked it already, anything else tells nothing new
+                LOGGER.debug("Health check of the {} processor answered {}", processor.value(), response.getStatus());
+            }
+        } catch (RuntimeException e) {
+            LOGGER.warn("Error checking the health of the {} processor: {}", processor.value(), e.getMessage());
+            record(processor, new ServiceHealth(true, 0));
+        }
+    }
+
+    void record(RemotePaymentName processor, ServiceHealth health) {
+        if (health == null) {
+            return;
+        }
+        switch (processor) {
+            case DEFAULT -> this.defaultHealth = health;
+            case FALLBACK -> this.fallbackHealth = health;
+        }
+    }
+
+    public ProcessorsHealth current() {
+        return new ProcessorsHealth(defaultHealth, fallbackHealth);
+    }
+
+    /**
+     * The processor to send a payment to right now: the default one while it works and answers in time,
+     * otherwise the fallback one under the same conditions, or none while neither does.
+     */
+    public Optional<RemotePaymentName> preferred() {
+        if (usable(defaultHealth)) {
+            return Optional.of(RemotePaymentName.DEFAULT);
+        }
+        if (usable(fallbackHealth)) {
+            return Optional.of(RemotePaymentName.FALLBACK);
+        }
+        return Optional.empty();
+    }
+
+    private boolean usable(ServiceHealth health) {
+        return !health.failing() && health.minResponseTime() < maxResponseTime;
+    }
+
+}
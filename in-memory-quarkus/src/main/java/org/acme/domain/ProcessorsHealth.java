@@ -0,0 +1,30 @@
+package org.acme.domain;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import jakarta.json.bind.annotation.JsonbProperty;
+
+import java.util.Optional;
+
+/**
+ * The last known health of both processors, as one instance shares it with the other.
+ */
+@RegisterForReflection
+public record ProcessorsHealth(
+        @JsonbProperty("default") ServiceHealth defaultHealth,
+        @JsonbProperty("fallback") ServiceHealth fallbackHealth) {
+
+    public static final ProcessorsHealth UNKNOWN = new ProcessorsHealth(ServiceHealth.UNKNOWN, ServiceHealth.UNKNOWN);
+
+    public ProcessorsHealth {
+        defaultHealth = Optional.ofNullable(defaultHealth).orElse(ServiceHealth.UNKNOWN);
+        fallbackHealth = Optional.ofNullable(fallbackHealth).orElse(ServiceHealth.UNKNOWN);
+    }
+
+    public ServiceHealth of(RemotePaymentName processor) {
+        return switch (processor) {
+            case DEFAULT -> defaultHealth;
+            case FALLBACK -> fallbackHealth;
+        };
+    }
+
+}
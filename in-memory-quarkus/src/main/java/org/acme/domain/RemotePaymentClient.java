@@ -0,0 +1,23 @@
+package org.acme.domain;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * How payments reach the processors: posts a body encoded by {@link RemotePaymentRequestWriter} to
+ * one of them, completing with the status it answered, or exceptionally when it couldn't be reached.
+ * <p>
+ * Implementations never throw, and may complete on any thread, including an event loop.
+ */
+public interface RemotePaymentClient {
+
+    CompletionStage<Integer> post(RemotePaymentName processor, byte[] body);
+
+    /**
+     * Whether {@link #post(RemotePaymentName, byte[])} holds the calling thread until the processor
+     * answered.
+     */
+    default boolean isBlocking() {
+        return false;
+    }
+
+}
@@ -1,5 +1,7 @@
 package org.acme.domain;
 
+import java.time.Instant;
+
 public enum RemotePaymentName {
 
     DEFAULT,
@@ -9,9 +11,9 @@ public enum RemotePaymentName {
         return this.name().toLowerCase();
     }
 
-    public Payment toPayment(RemotePaymentRequest remotePaymentRequest) {
-        return Payment.of(remotePaymentRequest.correlationId(), this,
-                remotePaymentRequest.amount(),
-                remotePaymentRequest.requestedAt());
+    public Payment toPayment(NewPaymentRequest newPaymentRequest, Instant requestedAt) {
+        return Payment.of(newPaymentRequest.correlationId(), this,
+                newPaymentRequest.amount(),
+                requestedAt);
     }
 }
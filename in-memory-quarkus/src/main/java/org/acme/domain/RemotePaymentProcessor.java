@@ -1,6 +1,7 @@
 package org.acme.domain;
 
 import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.GET;
 import jakarta.ws.rs.POST;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.Produces;
@@ -10,9 +11,17 @@ import org.jboss.resteasy.reactive.RestResponse;
 @Path("/payments")
 public interface RemotePaymentProcessor {
 
+    /**
+     * Sends a body encoded by {@link RemotePaymentRequestWriter}, and leaves the response body unread.
+     */
     @POST
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
-    RestResponse<RemotePaymentResponse> processPayment(RemotePaymentRequest request);
+    RestResponse<Void> processPayment(byte[] request);
+
+    @GET
+    @Path("/service-health")
+    @Produces(MediaType.APPLICATION_JSON)
+    RestResponse<ServiceHealth> serviceHealth();
 
 }
@@ -0,0 +1,161 @@
+package org.acme.domain;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodes the body of a call to a payment processor, as
+ * {@code {"correlationId":"<id>","amount":<amount>,"requestedAt":"<yyyy-MM-ddTHH:mm:ss.SSSZ>"}},
+ * straight into bytes.
+ * <p>
+ * The constant parts of the body are encoded once; a call copies them around its own values, written
+ * digit by digit from the longs of a request read by {@code PaymentRequestParser}, with no
+ * {@link String}, {@link java.math.BigDecimal} or formatter in between.
+ */
+final class RemotePaymentRequestWriter {
+
+    private static final byte[] ID_PREFIX = ascii("{\"correlationId\":\"");
+    private static final byte[] AMOUNT_PREFIX = ascii("\",\"amount\":");
+    private static final byte[] REQUESTED_AT_PREFIX = ascii(",\"requestedAt\":\"");
+    private static final byte[] SUFFIX = ascii("\"}");
+    private static final byte[] HEX_DIGITS = ascii("0123456789abcdef");
+    private static final int UUID_LENGTH = 36;
+    private static final int TIMESTAMP_LENGTH = 24;
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    private RemotePaymentRequestWriter() {
+    }
+
+    static byte[] write(NewPaymentRequest request, long requestedAtMillis) {
+        byte[] id = request.isCompact() ? null : escape(request.correlationId());
+        byte[] amount = request.isCompact() ? null : ascii(request.amount().toPlainString());
+        int idLength = id == null ? UUID_LENGTH : id.length;
+        int amountLength = amount == null ? centsLength(request.amountCents()) : amount.length;
+
+        byte[] body = new byte[ID_PREFIX.length + idLength + AMOUNT_PREFIX.length + amountLength
+                + REQUESTED_AT_PREFIX.length + TIMESTAMP_LENGTH + SUFFIX.length];
+        int position = copy(ID_PREFIX, body, 0);
+        if (id == null) {
+            writeUuid(request.idMostSigBits(), request.idLeastSigBits(), body, position);
+            position += UUID_LENGTH;
+        } else {
+            position = copy(id, body, position);
+        }
+        position = copy(AMOUNT_PREFIX, body, position);
+        if (amount == null) {
+            writeCents(request.amountCents(), body, position + amountLength);
+            position += amountLength;
+        } else {
+            position = copy(amount, body, position);
+        }
+        position = copy(REQUESTED_AT_PREFIX, body, position);
+        writeTimestamp(requestedAtMillis, body, position);
+        copy(SUFFIX, body, position + TIMESTAMP_LENGTH);
+        return body;
+    }
+
+    private static void writeUuid(long mostSigBits, long leastSigBits, byte[] body, int position) {
+        writeHex(mostSigBits >>> 32, 8, body, position);
+        body[position + 8] = '-';
+        writeHex(mostSigBits >>> 16, 4, body, position + 9);
+        body[position + 13] = '-';
+        writeHex(mostSigBits, 4, body, position + 14);
+        body[position + 18] = '-';
+        writeHex(leastSigBits >>> 48, 4, body, position + 19);
+        body[position + 23] = '-';
+        writeHex(leastSigBits, 12, body, position + 24);
+    }
+
+    private static void writeHex(long value, int digits, byte[] body, int position) {
+        for (int i = position + digits - 1; i >= position; i--) {
+            body[i] = HEX_DIGITS[(int) value & 0xf];
+            value >>>= 4;
+        }
+    }
+
+    private static int centsLength(long cents) {
+        // at least one integer digit, the point and two decimals
+        int length = 4;
+        for (long integer = cents / 100; integer >= 10; integer /= 10) {
+            length++;
+        }
+        return length;
+    }
+
+    // backwards, from the last decimal
+    private static void writeCents(long cents, byte[] body, int end) {
+        int position = end;
+        body[--position] = (byte) ('0' + cents % 10);
+        body[--position] = (byte) ('0' + cents / 10 % 10);
+        body[--position] = '.';
+        long integer = cents / 100;
+        do {
+            body[--position] = (byte) ('0' + integer % 10);
+            integer /= 10;
+        } while (integer > 0);
+    }
+
+    // ISO-8601 in UTC, always to the millisecond so the body has a fixed length around it
+    private static void writeTimestamp(long epochMillis, byte[] body, int position) {
+        long days = Math.floorDiv(epochMillis, MILLIS_PER_DAY);
+        int millisOfDay = (int) Math.floorMod(epochMillis, MILLIS_PER_DAY);
+
+        // civil from days, after Howard Hinnant's algorithm
+        long shifted = days + 719_468;
+        long era = Math.floorDiv(shifted, 146_097);
+        long dayOfEra = shifted - era * 146_097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1_460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long monthIndex = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * monthIndex + 2) / 5 + 1);
+        int month = (int) (monthIndex < 10 ? monthIndex + 3 : monthIndex - 9);
+        int year = (int) (yearOfEra + era * 400 + (month <= 2 ? 1 : 0));
+
+        writeDigits(year, 4, body, position);
+        body[position + 4] = '-';
+        writeDigits(month, 2, body, position + 5);
+        body[position + 7] = '-';
+        writeDigits(day, 2, body, position + 8);
+        body[position + 10] = 'T';
+        writeDigits(millisOfDay / 3_600_000, 2, body, position + 11);
+        body[position + 13] = ':';
+        writeDigits(millisOfDay / 60_000 % 60, 2, body, position + 14);
+        body[position + 16] = ':';
+        writeDigits(millisOfDay / 1_000 % 60, 2, body, position + 17);
+        body[position + 19] = '.';
+        writeDigits(millisOfDay % 1_000, 3, body, position + 20);
+        body[position + 23] = 'Z';
+    }
+
+    private static void writeDigits(int value, int digits, byte[] body, int position) {
+        for (int i = position + digits - 1; i >= position; i--) {
+            body[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    private static int copy(byte[] source, byte[] body, int position) {
+        System.arraycopy(source, 0, body, position, source.length);
+        return position + source.length;
+    }
+
+    // the contents of a JSON string, for ids that didn't come in as canonical UUIDs
+    private static byte[] escape(String value) {
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                escaped.append('\\').append(c);
+            } else if (c < 0x20) {
+                escaped.append(String.format("\\u%04x", (int) c));
+            } else {
+                escaped.append(c);
+            }
+        }
+        return escaped.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+}
@@ -1,6 +0,0 @@
-package org.acme.domain;
-
-import io.quarkus.runtime.annotations.RegisterForReflection;
-
-@RegisterForReflection
-public record RemotePaymentResponse(String message) { }
@@ -0,0 +1,32 @@
+package org.acme.domain;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Exponential backoff with jitter: the n-th retry waits {@code initial * 2^n}, capped at {@code max},
+ * minus a random share of up to {@code jitter} of it, so requests failing together don't come back
+ * together.
+ */
+public final class RetryBackoff {
+
+    private final long initialNanos;
+    private final long maxNanos;
+    private final double jitter;
+
+    public RetryBackoff(Duration initial, Duration max, double jitter) {
+        if (jitter < 0 || jitter > 1) {
+            throw new IllegalArgumentException("Jitter must be in [0, 1]");
+        }
+        this.initialNanos = initial.toNanos();
+        this.maxNanos = Math.max(initialNanos, max.toNanos());
+        this.jitter = jitter;
+    }
+
+    public long delayNanos(int attempt) {
+        int shift = Math.min(Math.max(attempt, 0), Long.numberOfLeadingZeros(initialNanos) - 1);
+        long delay = Math.min(maxNanos, initialNanos << shift);
+        return delay - (long) (delay * jitter * ThreadLocalRandom.current().nextDouble());
+    }
+
+}
@@ -0,0 +1,99 @@
+package org.acme.domain;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded multi-producer multi-consumer queue over a preallocated ring of slots.
+ * <p>
+ * Every slot carries a sequence number telling whose turn it is: producers and consumers claim a
+ * position with a compare-and-set on their own counter, and only touch the slot once its sequence
+ * says it was released by the other side. Neither offering nor polling allocates or waits;
+ * {@link PaymentLanes} is what workers wait on.
+ */
+public final class RingBuffer<E> {
+
+    private static final VarHandle SEQUENCES = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle ELEMENTS = MethodHandles.arrayElementVarHandle(Object[].class);
+
+    private final int mask;
+    private final long[] sequences;
+    private final Object[] elements;
+    private final AtomicLong producerPosition = new AtomicLong();
+    private final AtomicLong consumerPosition = new AtomicLong();
+
+    public RingBuffer(int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity must be in (0, 2^30]");
+        }
+        // a single slot would read as free again as soon as it's published
+        int size = Math.max(Integer.highestOneBit(capacity - 1) << 1, 2);
+        this.mask = size - 1;
+        this.sequences = new long[size];
+        this.elements = new Object[size];
+        for (int i = 0; i < size; i++) {
+            sequences[i] = i;
+        }
+    }
+
+    public int capacity() {
+        return sequences.length;
+    }
+
+    public int size() {
+        return (int) Math.max(0, producerPosition.get() - consumerPosition.get());
+    }
+
+    /**
+     * Adds the element unless the ring is full.
+     */
+    public boolean offer(E element) {
+        Objects.requireNonNull(element, "element must not be null");
+        long position = producerPosition.get();
+        while (true) {
+            int index = (int) position & mask;
+            long sequence = (long) SEQUENCES.getAcquire(sequences, index);
+            if (sequence == position) {
+                if (producerPosition.compareAndSet(position, position + 1)) {
+                    ELEMENTS.setRelease(elements, index, element);
+                    SEQUENCES.setRelease(sequences, index, position + 1);
+                    return true;
+                }
+                position = producerPosition.get();
+            } else if (sequence < position) {
+                // the consumer of the previous lap hasn't freed it yet
+                return false;
+            } else {
+                position = producerPosition.get();
+            }
+        }
+    }
+
+    /**
+     * Takes the oldest element, unless there's none or its producer hasn't finished offering it.
+     */
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        long position = consumerPosition.get();
+        while (true) {
+            int index = (int) position & mask;
+            long sequence = (long) SEQUENCES.getAcquire(sequences, index);
+            if (sequence == position + 1) {
+                if (consumerPosition.compareAndSet(position, position + 1)) {
+                    E element = (E) ELEMENTS.getAcquire(elements, index);
+                    ELEMENTS.setRelease(elements, index, null);
+                    SEQUENCES.setRelease(sequences, index, position + mask + 1);
+                    return element;
+                }
+                position = consumerPosition.get();
+            } else if (sequence < position + 1) {
+                return null;
+            } else {
+                position = consumerPosition.get();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,13 @@
+package org.acme.domain;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+/**
+ * What a payment processor reports on {@code GET /payments/service-health}.
+ */
+@RegisterForReflection
+public record ServiceHealth(boolean failing, long minResponseTime) {
+
+    public static final ServiceHealth UNKNOWN = new ServiceHealth(false, 0);
+
+}
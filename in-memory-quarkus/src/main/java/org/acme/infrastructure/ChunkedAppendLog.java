@@ -0,0 +1,194 @@
+package org.acme.infrastructure;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Append-only log of fixed-size chunks with a published-length watermark.
+ * <p>
+ * Writers claim a slot with a single increment, fill it and then move the watermark over every filled
+ * slot they find at its position, so a slow writer never blocks the others: whoever fills the slot the
+ * watermark is waiting for carries it over the slots filled in the meantime. Readers only look at the
+ * slots below the watermark, so they get a consistent prefix of the log without copying or locking it.
+ */
+final class ChunkedAppendLog<T> {
+
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(Object[].class);
+    private static final VarHandle PUBLISHED;
+
+    static {
+        try {
+            PUBLISHED = MethodHandles.lookup().findVarHandle(ChunkedAppendLog.class, "published", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final int chunkSize;
+    private final Chunk head;
+    private final AtomicLong claimed = new AtomicLong();
+    private volatile Chunk tail;
+    private volatile long published;
+
+    ChunkedAppendLog(int chunkSize) {
+        this.chunkSize = chunkSize;
+        this.head = new Chunk(0, chunkSize);
+        this.tail = head;
+    }
+
+    void append(T element) {
+        Objects.requireNonNull(element, "element must not be null");
+        long index = claimed.getAndIncrement();
+        Chunk chunk = chunkFor(index);
+        SLOTS.setVolatile(chunk.slots, (int) (index - chunk.base), element);
+        advancePublished(chunk);
+    }
+
+    // The slots are written and read with volatile semantics: a writer that stops because the slot at
+    // the watermark is still empty must be seen by the writer of that slot when it carries the watermark.
+    private void advancePublished(Chunk hint) {
+        Chunk chunk = hint;
+        long position;
+        while ((position = published) < claimed.get()) {
+            if (position < chunk.base) {
+                chunk = head;
+            }
+            while (position >= chunk.base + chunkSize) {
+                Chunk next = chunk.next;
+                if (next == null) {
+                    // the slot's writer hasn't linked its chunk yet, so hasn't filled it either: it carries
+                    // the watermark on once it has
+                    return;
+                }
+                chunk = next;
+            }
+            if (SLOTS.getVolatile(chunk.slots, (int) (position - chunk.base)) == null) {
+                return;
+            }
+            PUBLISHED.compareAndSet(this, position, position + 1);
+        }
+    }
+
+    private Chunk chunkFor(long index) {
+        Chunk chunk = tail;
+        if (index < chunk.base) {
+            chunk = head;
+        }
+        while (index >= chunk.base + chunkSize) {
+            Chunk next = chunk.next;
+            if (next == null) {
+                Chunk created = new Chunk(chunk.base + chunkSize, chunkSize);
+                next = Chunk.NEXT.compareAndSet(chunk, null, created) ? created : chunk.next;
+            }
+            chunk = next;
+        }
+        if (chunk.base > tail.base) {
+            tail = chunk;
+        }
+        return chunk;
+    }
+
+    long size() {
+        return published;
+    }
+
+    Stream<T> stream() {
+        return StreamSupport.stream(new PrefixSpliterator(head, 0, published), false);
+    }
+
+    private static final class Chunk {
+
+        private static final VarHandle NEXT;
+
+        static {
+            try {
+                NEXT = MethodHandles.lookup().findVarHandle(Chunk.class, "next", Chunk.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        private final long base;
+        private final Object[] slots;
+        private volatile Chunk next;
+
+        private Chunk(long base, int size) {
+            this.base = base;
+            this.slots = new Object[size];
+        }
+    }
+
+    private final class PrefixSpliterator implements Spliterator<T> {
+
+        private Chunk chunk;
+        private long position;
+        private final long end;
+
+        private PrefixSpliterator(Chunk chunk, long position, long end) {
+            this.chunk = chunk;
+            this.position = position;
+            this.end = end;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (position >= end) {
+                return false;
+            }
+            if (position >= chunk.base + chunkSize) {
+                chunk = chunk.next;
+            }
+            action.accept((T) chunk.slots[(int) (position++ - chunk.base)]);
+            return true;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void forEachRemaining(Consumer<? super T> action) {
+            while (position < end) {
+                if (position >= chunk.base + chunkSize) {
+                    chunk = chunk.next;
+                }
+                int from = (int) (position - chunk.base);
+                int to = (int) Math.min(chunkSize, end - chunk.base);
+                for (int slot = from; slot < to; slot++) {
+                    action.accept((T) chunk.slots[slot]);
+                }
+                position = chunk.base + to;
+            }
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            long middle = (position + end) >>> 1;
+            if (middle - position < chunkSize) {
+                return null;
+            }
+            PrefixSpliterator prefix = new PrefixSpliterator(chunk, position, middle);
+            Chunk middleChunk = chunk;
+            while (middle >= middleChunk.base + chunkSize) {
+                middleChunk = middleChunk.next;
+            }
+            this.chunk = middleChunk;
+            this.position = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return end - position;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package org.acme.infrastructure;
+
+import io.quarkus.arc.properties.IfBuildProperty;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.acme.domain.Payment;
+import org.acme.domain.Payments;
+import org.acme.domain.PaymentsSummary;
+import org.acme.domain.RemotePaymentName;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.Instant;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * {@link Payments} kept in chunks of primitive columns instead of one {@link Payment} object per row.
+ * <p>
+ * Each row takes the epoch millis and the nanos of that millisecond of {@code requestedAt}, the amount
+ * as {@link FixedPointAmounts} units plus its scale, and the processor. Correlation ids are only kept
+ * in a {@link CorrelationIdSet}, and the rare payment that doesn't fit the columns at all is kept as is
+ * in {@code outliers}.
+ * <p>
+ * Writers claim a row with a single increment and publish it by writing its processor last, so readers
+ * never see a half written row and neither side takes a lock.
+ */
+@ApplicationScoped
+@IfBuildProperty(name = "payments.storage", stringValue = "columnar")
+public class ColumnarPayments implements Payments {
+
+    static final int CHUNK_SIZE = 1 << 14;
+    static final int MAX_CHUNKS = 1 << 16;
+
+    private static final VarHandle PROCESSORS = MethodHandles.arrayElementVarHandle(byte[].class);
+    private static final RemotePaymentName[] PROCESSOR_NAMES = RemotePaymentName.values();
+    private static final byte EMPTY = 0;
+    private static final int NANOS_PER_MILLI = 1_000_000;
+
+    public static final int DEFAULT_CORRELATION_IDS_CAPACITY = CorrelationIdSet.DEFAULT_CAPACITY;
+
+    private final int correlationIdsCapacity;
+
+    private volatile Store store;
+
+    public ColumnarPayments(
+            @ConfigProperty(name = "payments.dedup.capacity", defaultValue = "1000000")
+            int correlationIdsCapacity) {
+        this.correlationIdsCapacity = correlationIdsCapacity;
+        this.store = new Store(correlationIdsCapacity);
+    }
+
+    @Override
+    public void add(Payment payment) {
+        if (payment == null)
+            return;
+        Store current = this.store;
+        if (current.correlationIds.add(payment.correlationId()))
+            current.add(payment);
+    }
+
+    @Override
+    public boolean contains(String correlationId) {
+        return this.store.correlationIds.contains(correlationId);
+    }
+
+    @Override
+    public void purge() {
+        this.store = new Store(correlationIdsCapacity);
+    }
+
+    @Override
+    public PaymentsSummary getSummary(Instant from, Instant to) {
+        return this.store.getSummary(from, to);
+    }
+
+    private static final class Store {
+
+        private final AtomicLong rows = new AtomicLong();
+        private final AtomicReferenceArray<Chunk> chunks = new AtomicReferenceArray<>(MAX_CHUNKS);
+        private final ConcurrentLinkedQueue<Payment> outliers = new ConcurrentLinkedQueue<>();
+        private final CorrelationIdSet correlationIds;
+
+        private Store(int correlationIdsCapacity) {
+            this.correlationIds = new CorrelationIdSet(correlationIdsCapacity);
+        }
+
+        private void add(Payment payment) {
+            Instant requestedAt = payment.requestedAt();
+            long units;
+            long millis;
+            try {
+                units = FixedPointAmounts.toUnits(payment.amount());
+                millis = requestedAt.toEpochMilli();
+            } catch (RuntimeException e) {
+                outliers.offer(payment);
+                return;
+            }
+            long row = rows.getAndIncrement();
+            if (row >= (long) CHUNK_SIZE * MAX_CHUNKS) {
+                outliers.offer(payment);
+                return;
+            }
+            Chunk chunk = chunk((int) (row / CHUNK_SIZE));
+            int index = (int) (row % CHUNK_SIZE);
+
+            chunk.epochMillis[index] = millis;
+            chunk.nanosOfMilli[index] = requestedAt.getNano() % NANOS_PER_MILLI;
+            chunk.units[index] = units;
+            chunk.scales[index] = (byte) Math.max(0, payment.amount().scale());
+            PROCESSORS.setRelease(chunk.processors, index, (byte) (payment.processedBy().ordinal() + 1));
+        }
+
+        private Chunk chunk(int number) {
+            Chunk chunk = chunks.get(number);
+            if (chunk == null) {
+                chunks.compareAndSet(number, null, new Chunk());
+                chunk = chunks.get(number);
+            }
+            return chunk;
+        }
+
+        private PaymentsSummary getSummary(Instant from, Instant to) {
+            Range range = Range.of(from, to);
+            long[] counts = new long[PROCESSOR_NAMES.length];
+            long[] units = new long[PROCESSOR_NAMES.length];
+            int[] scales = new int[PROCESSOR_NAMES.length];
+
+            long published = Math.min(rows.get(), (long) CHUNK_SIZE * MAX_CHUNKS);
+            for (int number = 0; (long) number * CHUNK_SIZE < published; number++) {
+                Chunk chunk = chunks.get(number);
+                if (chunk == null) {
+                    continue;
+                }
+                int length = (int) Math.min(CHUNK_SIZE, published - (long) number * CHUNK_SIZE);
+                for (int index = 0; index < length; index++) {
+                    byte processor = (byte) PROCESSORS.getAcquire(chunk.processors, index);
+                    if (processor == EMPTY
+                            || !range.contains(chunk.epochMillis[index], chunk.nanosOfMilli[index])) {
+                        continue;
+                    }
+                    counts[processor - 1]++;
+                    units[processor - 1] += chunk.units[index];
+                    scales[processor - 1] |= 1 << chunk.scales[index];
+                }
+            }
+
+            FixedPointSummary summary = new FixedPointSummary();
+            for (int processor = 0; processor < PROCESSOR_NAMES.length; processor++) {
+                summary.add(PROCESSOR_NAMES[processor], counts[processor], units[processor], scales[processor]);
+            }
+            for (Payment outlier : outliers) {
+                if (Payment.createdOn(from, to).test(outlier)) {
+                    summary.add(outlier);
+                }
+            }
+            return summary.toPaymentsSummary();
+        }
+    }
+
+    private static final class Chunk {
+
+        private final long[] epochMillis = new long[CHUNK_SIZE];
+        private final int[] nanosOfMilli = new int[CHUNK_SIZE];
+        private final long[] units = new long[CHUNK_SIZE];
+        private final byte[] scales = new byte[CHUNK_SIZE];
+        private final byte[] processors = new byte[CHUNK_SIZE];
+    }
+
+    // [from, to] as (epoch millis, nanos of that millisecond) pairs, so rows are compared without
+    // rebuilding an Instant for each of them.
+    private record Range(long fromMillis, int fromNanos, long toMillis, int toNanos) {
+
+        private static Range of(Instant from, Instant to) {
+            return new Range(
+                    from == null ? Long.MIN_VALUE : millisOf(from),
+                    from == null ? 0 : from.getNano() % NANOS_PER_MILLI,
+                    to == null ? Long.MAX_VALUE : millisOf(to),
+                    to == null ? NANOS_PER_MILLI : to.getNano() % NANOS_PER_MILLI);
+        }
+
+        private static long millisOf(Instant instant) {
+            try {
+                return instant.toEpochMilli();
+            } catch (ArithmeticException e) {
+                return instant.getEpochSecond() < 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+            }
+        }
+
+        private boolean contains(long millis, int nanos) {
+            return (millis > fromMillis || (millis == fromMillis && nanos >= fromNanos))
+                    && (millis < toMillis || (millis == toMillis && nanos <= toNanos));
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package org.acme.infrastructure;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Concurrent set of correlation ids kept as the two longs of their UUID, without retaining the strings.
+ * <p>
+ * Ids are spread over independently locked stripes of open addressing tables, so writers hardly ever
+ * meet on the same lock, and {@link #contains(String)} is an optimistic read that doesn't lock at all.
+ * Ids that aren't UUIDs are kept as two differently seeded 64 bit hashes of their characters.
+ * <p>
+ * The set is bounded: ids are added to a current generation of stripes, and once one of its stripes
+ * holds its share of the capacity, it becomes the previous generation, replacing the one before, which
+ * is forgotten. So it holds between one and two capacities' worth of the latest ids, and an id added
+ * again after a capacity of others is taken for a new one.
+ */
+final class CorrelationIdSet {
+
+    static final int DEFAULT_CAPACITY = 1_000_000;
+
+    private static final int STRIPES = 64;
+    private static final int INITIAL_STRIPE_CAPACITY = 1 << 6;
+
+    private final int capacity;
+    private final int stripeCapacity;
+    private volatile Generations generations;
+
+    CorrelationIdSet() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    CorrelationIdSet(int capacity) {
+        if (capacity < STRIPES) {
+            throw new IllegalArgumentException("The capacity must be at least " + STRIPES);
+        }
+        this.capacity = capacity;
+        this.stripeCapacity = capacity / STRIPES;
+        this.generations = new Generations(newStripes(), newStripes());
+    }
+
+    private static Stripe[] newStripes() {
+        Stripe[] stripes = new Stripe[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+        return stripes;
+    }
+
+    /**
+     * @return false if the correlation id was already in the set
+     */
+    boolean add(String correlationId) {
+        if (correlationId == null) {
+            return true;
+        }
+        UUID uuid = toUUID(correlationId);
+        return add(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+    }
+
+    // the stripe of the current generation is locked while the previous one is looked up, and rotating
+    // locks every stripe of the current generation, so an id is never added to both
+    private boolean add(long mostSigBits, long leastSigBits) {
+        long hash = hash(mostSigBits, leastSigBits);
+        int stripe = stripeOf(hash);
+        while (true) {
+            Generations seen = this.generations;
+            Stripe current = seen.current[stripe];
+            long stamp = current.lock.writeLock();
+            int size;
+            try {
+                if (seen != this.generations) {
+                    continue;
+                }
+                if (seen.previous[stripe].contains(mostSigBits, leastSigBits, hash)) {
+                    return false;
+                }
+                size = current.add(mostSigBits, leastSigBits, hash);
+            } finally {
+                current.lock.unlockWrite(stamp);
+            }
+            if (size < 0) {
+                return false;
+            }
+            if (size >= stripeCapacity) {
+                rotate(seen);
+            }
+            return true;
+        }
+    }
+
+    private synchronized void rotate(Generations full) {
+        if (full == this.generations) {
+            swap(new Generations(newStripes(), full.current));
+        }
+    }
+
+    private synchronized void swap(Generations next) {
+        Stripe[] current = this.generations.current;
+        long[] stamps = new long[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stamps[i] = current[i].lock.writeLock();
+        }
+        this.generations = next;
+        for (int i = 0; i < STRIPES; i++) {
+            current[i].lock.unlockWrite(stamps[i]);
+        }
+    }
+
+    boolean contains(String correlationId) {
+        if (correlationId == null) {
+            return false;
+        }
+        UUID uuid = toUUID(correlationId);
+        long mostSigBits = uuid.getMostSignificantBits();
+        long leastSigBits = uuid.getLeastSignificantBits();
+        long hash = hash(mostSigBits, leastSigBits);
+        int stripe = stripeOf(hash);
+        Generations seen = this.generations;
+        return seen.current[stripe].contains(mostSigBits, leastSigBits, hash)
+                || seen.previous[stripe].contains(mostSigBits, leastSigBits, hash);
+    }
+
+    /**
+     * How many ids are kept, in both generations.
+     */
+    long size() {
+        Generations seen = this.generations;
+        long size = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            size += seen.current[i].size() + seen.previous[i].size();
+        }
+        return size;
+    }
+
+    void clear() {
+        swap(new Generations(newStripes(), newStripes()));
+    }
+
+    /**
+     * Copies the current generation, and shares the previous one, which nothing writes to anymore.
+     */
+    CorrelationIdSet copy() {
+        CorrelationIdSet copy = new CorrelationIdSet(capacity);
+        Generations seen = this.generations;
+        Stripe[] current = newStripes();
+        for (int i = 0; i < STRIPES; i++) {
+            seen.current[i].copyTo(current[i]);
+        }
+        copy.generations = new Generations(current, seen.previous);
+        return copy;
+    }
+
+    /**
+     * Meant for a {@link #copy()}, which nothing else writes to.
+     */
+    void writeTo(DataOutput out) throws IOException {
+        out.writeInt(capacity);
+        writeStripes(out, generations.previous);
+        writeStripes(out, generations.current);
+    }
+
+    private static void writeStripes(DataOutput out, Stripe[] stripes) throws IOException {
+        long size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size();
+        }
+        out.writeLong(size);
+        for (Stripe stripe : stripes) {
+            if (stripe.containsZero) {
+                out.writeLong(0);
+                out.writeLong(0);
+            }
+            long[] keys = stripe.keys;
+            for (int slot = 0; slot < keys.length / 2; slot++) {
+                if (!Stripe.isZero(keys[slot * 2], keys[slot * 2 + 1])) {
+                    out.writeLong(keys[slot * 2]);
+                    out.writeLong(keys[slot * 2 + 1]);
+                }
+            }
+        }
+    }
+
+    // the previous generation is read first, so it stays the previous one unless the capacity was lowered
+    static CorrelationIdSet readFrom(DataInput in) throws IOException {
+        CorrelationIdSet correlationIds = new CorrelationIdSet(in.readInt());
+        for (int generation = 0; generation < 2; generation++) {
+            for (long i = in.readLong(); i > 0; i--) {
+                correlationIds.add(in.readLong(), in.readLong());
+            }
+            if (generation == 0) {
+                Generations read = correlationIds.generations;
+                correlationIds.generations = new Generations(newStripes(), read.current);
+            }
+        }
+        return correlationIds;
+    }
+
+    private static int stripeOf(long hash) {
+        return (int) (hash >>> 58) & (STRIPES - 1);
+    }
+
+    private record Generations(Stripe[] current, Stripe[] previous) {
+    }
+
+    private static UUID toUUID(String correlationId) {
+        if (correlationId.length() == 36) {
+            try {
+                return UUID.fromString(correlationId);
+            } catch (IllegalArgumentException e) {
+                // not a UUID after all
+            }
+        }
+        return new UUID(hash(correlationId, 0x9E3779B97F4A7C15L), hash(correlationId, 0xC2B2AE3D27D4EB4FL));
+    }
+
+    private static long hash(String correlationId, long seed) {
+        long hash = seed;
+        for (int i = 0; i < correlationId.length(); i++) {
+            hash = (hash ^ correlationId.charAt(i)) * 0x100000001B3L;
+        }
+        return hash(hash, seed);
+    }
+
+    private static long hash(long mostSigBits, long leastSigBits) {
+        long hash = mostSigBits * 0x9E3779B97F4A7C15L ^ leastSigBits;
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        return hash ^ hash >>> 33;
+    }
+
+    // Keys are stored as (mostSigBits, leastSigBits) pairs, with (0, 0) marking an empty slot, so the
+    // all zero UUID is tracked apart. Writers hold the lock, readers validate against it.
+    private static final class Stripe {
+
+        private final StampedLock lock = new StampedLock();
+        private volatile long[] keys = new long[INITIAL_STRIPE_CAPACITY * 2];
+        private volatile boolean containsZero;
+        private int size;
+
+        private boolean contains(long mostSigBits, long leastSigBits, long hash) {
+            if (isZero(mostSigBits, leastSigBits)) {
+                return containsZero;
+            }
+            long stamp = lock.tryOptimisticRead();
+            boolean found = find(keys, mostSigBits, leastSigBits, hash) >= 0;
+            if (lock.validate(stamp)) {
+                return found;
+            }
+            stamp = lock.readLock();
+            try {
+                return find(keys, mostSigBits, leastSigBits, hash) >= 0;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        // called with the lock held; returns the size after adding, or -1 if the key was already there
+        private int add(long mostSigBits, long leastSigBits, long hash) {
+            if (isZero(mostSigBits, leastSigBits)) {
+                boolean added = !containsZero;
+                containsZero = true;
+                return added ? size() : -1;
+            }
+            if (find(keys, mostSigBits, leastSigBits, hash) >= 0) {
+                return -1;
+            }
+            if ((size + 1) * 4L > (keys.length / 2) * 3L) {
+                keys = resize(keys);
+            }
+            insert(keys, mostSigBits, leastSigBits, hash);
+            size++;
+            return size();
+        }
+
+        private int size() {
+            return size + (containsZero ? 1 : 0);
+        }
+
+        private void copyTo(Stripe copy) {
+            long stamp = lock.readLock();
+            try {
+                copy.keys = keys.clone();
+                copy.containsZero = containsZero;
+                copy.size = size;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        private static boolean isZero(long mostSigBits, long leastSigBits) {
+            return mostSigBits == 0 && leastSigBits == 0;
+        }
+
+        private static int find(long[] keys, long mostSigBits, long leastSigBits, long hash) {
+            int mask = keys.length / 2 - 1;
+            for (int slot = (int) hash & mask, probes = 0; probes <= mask; slot = (slot + 1) & mask, probes++) {
+                long storedMostSigBits = keys[slot * 2];
+                long storedLeastSigBits = keys[slot * 2 + 1];
+                if (storedMostSigBits == mostSigBits && storedLeastSigBits == leastSigBits) {
+                    return slot;
+                }
+                if (isZero(storedMostSigBits, storedLeastSigBits)) {
+                    return -1;
+                }
+            }
+            return -1;
+        }
+
+        private static void insert(long[] keys, long mostSigBits, long leastSigBits, long hash) {
+            int mask = keys.length / 2 - 1;
+            int slot = (int) hash & mask;
+            while (!isZero(keys[slot * 2], keys[slot * 2 + 1])) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot * 2] = mostSigBits;
+            keys[slot * 2 + 1] = leastSigBits;
+        }
+
+        private static long[] resize(long[] keys) {
+            long[] resized = new long[keys.length * 2];
+            for (int slot = 0; slot < keys.length / 2; slot++) {
+                long mostSigBits = keys[slot * 2];
+                long leastSigBits = keys[slot * 2 + 1];
+                if (!isZero(mostSigBits, leastSigBits)) {
+                    insert(resized, mostSigBits, leastSigBits, hash(mostSigBits, leastSigBits));
+                }
+            }
+            return resized;
+        }
+    }
+}
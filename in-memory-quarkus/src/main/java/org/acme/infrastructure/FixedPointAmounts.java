@@ -0,0 +1,56 @@
+package org.acme.infrastructure;
+
+import java.math.BigDecimal;
+
+/**
+ * Amounts kept as a {@code long} number of units of {@code 10^-SCALE}, plus a bit set of the scales
+ * that were folded into a total.
+ * <p>
+ * {@link BigDecimal#add(BigDecimal)} keeps the largest scale of its operands, so carrying the scales
+ * along is what lets {@link #toAmount(long, int)} render the same value the raw amounts would sum to.
+ */
+final class FixedPointAmounts {
+
+    static final int SCALE = 4;
+
+    private static final double UNITS_PER_ONE = 10_000;
+    // below this many units, an amount's double times UNITS_PER_ONE rounds to its exact units
+    private static final double EXACT_UNITS = 0x1p50;
+
+    private FixedPointAmounts() {
+    }
+
+    /**
+     * @throws ArithmeticException if the amount has more than {@link #SCALE} decimal places or doesn't fit a long
+     */
+    static long toUnits(BigDecimal amount) {
+        // doubleValue() divides the unscaled long of a compact amount by a power of ten, without
+        // allocating, and both roundings stay well under half a unit this far from 2^53
+        if (amount.scale() >= 0 && amount.scale() <= SCALE) {
+            double units = amount.doubleValue() * UNITS_PER_ONE;
+            if (Math.abs(units) < EXACT_UNITS) {
+                return Math.round(units);
+            }
+        }
+        return amount.setScale(SCALE).unscaledValue().longValueExact();
+    }
+
+    /**
+     * @throws ArithmeticException if the amount has more decimal places than an int has bits for
+     */
+    static int scaleBit(BigDecimal amount) {
+        int scale = Math.max(0, amount.scale());
+        if (scale >= Integer.SIZE - 1) {
+            throw new ArithmeticException("Scale out of range: " + amount.scale());
+        }
+        return 1 << scale;
+    }
+
+    static BigDecimal toAmount(long units, int scales) {
+        if (scales == 0) {
+            return BigDecimal.ZERO;
+        }
+        int scale = 31 - Integer.numberOfLeadingZeros(scales);
+        return BigDecimal.valueOf(units, SCALE).setScale(scale);
+    }
+}
@@ -0,0 +1,104 @@
+package org.acme.infrastructure;
+
+import org.acme.domain.Payment;
+import org.acme.domain.PaymentSummary;
+import org.acme.domain.PaymentsSummary;
+import org.acme.domain.RemotePaymentName;
+
+import java.math.BigDecimal;
+import java.util.stream.Collector;
+import java.util.stream.Stream;
+
+/**
+ * Mutable per-processor totals kept as {@link FixedPointAmounts} units, so summing payments is plain
+ * {@code long} arithmetic with no {@link BigDecimal} allocated per payment.
+ * <p>
+ * Amounts with more decimal places than {@link FixedPointAmounts#SCALE}, or that would overflow the
+ * units, are summed apart as {@link BigDecimal}s and only added to the units once rendered.
+ */
+final class FixedPointSummary {
+
+    private static final RemotePaymentName[] PROCESSORS = RemotePaymentName.values();
+
+    private final long[] counts = new long[PROCESSORS.length];
+    private final long[] units = new long[PROCESSORS.length];
+    private final int[] scales = new int[PROCESSORS.length];
+    private final BigDecimal[] remainders = new BigDecimal[PROCESSORS.length];
+
+    static Collector<Payment, FixedPointSummary, PaymentsSummary> collector() {
+        return Collector.of(
+                FixedPointSummary::new,
+                FixedPointSummary::add,
+                FixedPointSummary::combine,
+                FixedPointSummary::toPaymentsSummary);
+    }
+
+    static FixedPointSummary sum(Stream<Payment> payments) {
+        FixedPointSummary summary = new FixedPointSummary();
+        payments.forEach(summary::add);
+        return summary;
+    }
+
+    void add(Payment payment) {
+        int processor = payment.processedBy().ordinal();
+        BigDecimal amount = payment.amount();
+        counts[processor]++;
+        try {
+            int scaleBit = FixedPointAmounts.scaleBit(amount);
+            units[processor] = Math.addExact(units[processor], FixedPointAmounts.toUnits(amount));
+            scales[processor] |= scaleBit;
+        } catch (ArithmeticException e) {
+            addRemainder(processor, amount);
+        }
+    }
+
+    /**
+     * Adds totals already kept as units, e.g. by an index or a column scan.
+     */
+    void add(RemotePaymentName processedBy, long count, long amountUnits, int amountScales) {
+        int processor = processedBy.ordinal();
+        counts[processor] += count;
+        try {
+            units[processor] = Math.addExact(units[processor], amountUnits);
+            scales[processor] |= amountScales;
+        } catch (ArithmeticException e) {
+            addRemainder(processor, FixedPointAmounts.toAmount(amountUnits, amountScales));
+        }
+    }
+
+    FixedPointSummary combine(FixedPointSummary other) {
+        for (int processor = 0; processor < PROCESSORS.length; processor++) {
+            add(PROCESSORS[processor], other.counts[processor], other.units[processor], other.scales[processor]);
+            if (other.remainders[processor] != null) {
+                addRemainder(processor, other.remainders[processor]);
+            }
+        }
+        return this;
+    }
+
+    PaymentsSummary toPaymentsSummary() {
+        return PaymentsSummary.of(
+                toPaymentSummary(RemotePaymentName.DEFAULT.ordinal()),
+                toPaymentSummary(RemotePaymentName.FALLBACK.ordinal()));
+    }
+
+    private void addRemainder(int processor, BigDecimal amount) {
+        remainders[processor] = remainders[processor] == null ? amount : remainders[processor].add(amount);
+    }
+
+    private PaymentSummary toPaymentSummary(int processor) {
+        if (counts[processor] == 0) {
+            return PaymentSummary.ZERO;
+        }
+        BigDecimal remainder = remainders[processor];
+        BigDecimal amount;
+        if (remainder == null) {
+            amount = FixedPointAmounts.toAmount(units[processor], scales[processor]);
+        } else if (scales[processor] == 0) {
+            amount = remainder;
+        } else {
+            amount = FixedPointAmounts.toAmount(units[processor], scales[processor]).add(remainder);
+        }
+        return PaymentSummary.of(counts[processor], amount);
+    }
+}
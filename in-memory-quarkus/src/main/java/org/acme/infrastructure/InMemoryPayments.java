@@ -1,82 +1,421 @@
 package org.acme.infrastructure;
 
+import io.quarkus.arc.DefaultBean;
+import io.quarkus.runtime.Startup;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
 import org.acme.domain.Payment;
-import org.acme.domain.PaymentSummary;
 import org.acme.domain.Payments;
 import org.acme.domain.PaymentsSummary;
-import org.acme.domain.RemotePaymentName;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.Instant;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.stream.Collectors;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.StampedLock;
 import java.util.stream.Stream;
 
 import static java.util.stream.Collectors.groupingBy;
 import static java.util.stream.Collectors.summarizingDouble;
 
 @ApplicationScoped
+@DefaultBean
 public class InMemoryPayments implements Payments {
 
     public static final int DEFAULT_PARALLEL_STREAM_THRESHOLD = 1_000_000;
+    public static final Duration DEFAULT_REORDER_WINDOW = Duration.ofSeconds(10);
+    public static final Duration DEFAULT_RETENTION_HORIZON = Duration.ofMinutes(10);
+    public static final Duration DEFAULT_COMPACTION_INTERVAL = Duration.ofSeconds(30);
+    public static final Duration DEFAULT_ROLL_UPS_COARSE_AFTER = Duration.ofHours(1);
+    public static final Duration DEFAULT_ROLL_UPS_HORIZON = Duration.ofHours(24);
+    public static final int DEFAULT_CORRELATION_IDS_CAPACITY = CorrelationIdSet.DEFAULT_CAPACITY;
 
-    private final ConcurrentLinkedQueue<Payment> payments = new ConcurrentLinkedQueue<>();
+    private static final Logger LOGGER = LoggerFactory.getLogger(InMemoryPayments.class);
+
+    // swapped as a whole on purge, so the old one is left to the garbage collector instead of being cleared
+    private volatile Generation generation;
+
+    // compactions share it, snapshots and purges take it exclusively; writers are held off by closing the
+    // generation instead, and only wait on it once they found the generation closed
+    private final StampedLock snapshotLock = new StampedLock();
+
+    private final PaymentsJournal journal;
 
     private final int parallelStreamThreshold;
 
+    // sized to the CPUs the JVM sees, which follows the container's CPU quota
+    private final ForkJoinPool reductionPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    private final long reorderWindowMillis;
+
+    private final RangeAggregation aggregation;
+
+    private final Duration retentionHorizon;
+
+    private final Duration compactionInterval;
+
+    private final Duration rollUpsCoarseAfter;
+
+    private final Duration rollUpsHorizon;
+
+    private final int correlationIdsCapacity;
+
+    // woken early once the journal needs a snapshot to make room
+    private volatile Thread snapshotter;
+
     public InMemoryPayments(
             @ConfigProperty(name = "payments.parallel.stream.threshold", defaultValue = "100_000")
-            int parallelStreamThreshold) {
+            int parallelStreamThreshold,
+            @ConfigProperty(name = "payments.reorder-window", defaultValue = "10s")
+            Duration reorderWindow,
+            @ConfigProperty(name = "payments.retention.horizon", defaultValue = "10m")
+            Duration retentionHorizon,
+            @ConfigProperty(name = "payments.retention.compaction-interval", defaultValue = "30s")
+            Duration compactionInterval,
+            @ConfigProperty(name = "payments.retention.roll-ups.coarse-after", defaultValue = "1h")
+            Duration rollUpsCoarseAfter,
+            @ConfigProperty(name = "payments.retention.roll-ups.horizon", defaultValue = "24h")
+            Duration rollUpsHorizon,
+            @ConfigProperty(name = "payments.dedup.capacity", defaultValue = "1000000")
+            int correlationIdsCapacity,
+            PaymentsJournal journal) {
         this.parallelStreamThreshold = parallelStreamThreshold;
+        this.reorderWindowMillis = reorderWindow.toMillis();
+        this.aggregation = RangeAggregation.preferred();
+        LOGGER.info("Aggregating payment ranges with the {} kernel", aggregation);
+        // sealed segments are the only ones that can't receive payments in order anymore
+        this.retentionHorizon = retentionHorizon.compareTo(reorderWindow) < 0 ? reorderWindow : retentionHorizon;
+        this.compactionInterval = compactionInterval;
+        this.rollUpsCoarseAfter = rollUpsCoarseAfter;
+        this.rollUpsHorizon = rollUpsHorizon.compareTo(rollUpsCoarseAfter) < 0 ? rollUpsCoarseAfter : rollUpsHorizon;
+        this.correlationIdsCapacity = correlationIdsCapacity;
+        this.journal = journal;
+        Optional<PaymentsSnapshot> snapshot = journal.readSnapshot();
+        this.generation = snapshot.map(this::restore).orElseGet(this::newGeneration);
+        journal.replay(snapshot.map(PaymentsSnapshot::journalPosition).orElse(0L), this::store, this::clear);
+    }
+
+    private Generation newGeneration() {
+        return new Generation(
+                new TimeOrderedSegments(reorderWindowMillis, aggregation),
+                new PaymentsRollUps(),
+                new CorrelationIdSet(correlationIdsCapacity));
+    }
+
+    private Generation restore(PaymentsSnapshot snapshot) {
+        Generation restored = new Generation(
+                new TimeOrderedSegments(reorderWindowMillis, aggregation),
+                snapshot.rollUps(),
+                snapshot.correlationIds());
+        restored.placeSorted(snapshot.payments());
+        if (snapshot.compactedBefore() != null) {
+            restored.compact(snapshot.compactedBefore());
+        }
+        LOGGER.info("Restored {} payments from the snapshot", snapshot.payments().length);
+        return restored;
+    }
+
+    @Startup
+    public void startCompaction() {
+        LOGGER.info("Compacting payments older than {} every {}, coarsening their roll-ups after {} and totalling them after {}",
+                retentionHorizon, compactionInterval, rollUpsCoarseAfter, rollUpsHorizon);
+        Thread.startVirtualThread(() -> {
+            while (true) {
+                try {
+                    Thread.sleep(compactionInterval);
+                    Instant now = Instant.now();
+                    compact(now.minus(retentionHorizon));
+                    retainRollUps(now);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (RuntimeException e) {
+                    LOGGER.warn("Error compacting payments: {}", e.getMessage(), e);
+                }
+            }
+        });
+    }
+
+    @Startup
+    public void startSnapshots() {
+        if (!journal.isEnabled()) {
+            return;
+        }
+        LOGGER.info("Snapshotting payments every {}, or once the journal is half full", journal.snapshotInterval());
+        this.snapshotter = Thread.startVirtualThread(() -> {
+            while (true) {
+                LockSupport.parkNanos(journal.snapshotInterval().toNanos());
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                try {
+                    snapshot();
+                } catch (RuntimeException e) {
+                    LOGGER.warn("Error snapshotting payments: {}", e.getMessage(), e);
+                }
+            }
+        });
+    }
+
+    @PreDestroy
+    void close() {
+        // reductions already submitted finish, the workers then exit
+        reductionPool.shutdown();
+    }
+
+    /**
+     * Folds the payments requested before {@code before} into per-interval roll-ups.
+     */
+    void compact(Instant before) {
+        long stamp = snapshotLock.readLock();
+        try {
+            generation.compact(before);
+        } finally {
+            snapshotLock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Coarsens the roll-ups older than the first horizon and folds those older than the second one into a total.
+     */
+    void retainRollUps(Instant now) {
+        generation.rollUps.retain(now.minus(rollUpsCoarseAfter), now.minus(rollUpsHorizon));
+    }
+
+    // how many roll-up intervals are kept
+    int retainedRollUps() {
+        return generation.rollUps.size();
+    }
+
+    // whether summaries are still reduced on the pool
+    boolean isReductionPoolShutdown() {
+        return reductionPool.isShutdown();
+    }
+
+    // how many correlation ids are kept
+    long retainedCorrelationIds() {
+        return generation.correlationIds.size();
+    }
+
+    /**
+     * Writes a snapshot of the current state, covering the journal up to its current position. Writers
+     * are only held off, closing the generation, while the state is cut: sealed segments and the previous generation of
+     * correlation ids are shared, the logs still written to are cut at their length, and only the
+     * roll-ups and the current generation of ids, both bounded, are copied. The payments are gathered
+     * and written afterwards.
+     */
+    void snapshot() {
+        long position;
+        Instant compactedBefore;
+        Stream<Payment> payments;
+        PaymentsRollUps rollUps;
+        CorrelationIdSet correlationIds;
+        long stamp = snapshotLock.writeLock();
+        try {
+            Generation current = generation;
+            current.close();
+            try {
+                position = journal.position();
+                compactedBefore = current.payments.compactedBefore();
+                payments = current.payments.snapshot();
+                rollUps = current.rollUps.copy();
+                correlationIds = current.correlationIds.copy();
+            } finally {
+                current.reopen();
+            }
+        } finally {
+            snapshotLock.unlockWrite(stamp);
+        }
+        journal.writeSnapshot(new PaymentsSnapshot(position, compactedBefore,
+                payments.toArray(Payment[]::new), rollUps, correlationIds));
     }
 
+    /**
+     * The roll-ups answer for what was compacted, and the segments or the index for the rest, split where
+     * compaction stood when the summary started. A compaction moving on meanwhile hands segments over to
+     * the roll-ups and drops them from the index, so the summary is taken again rather than count them
+     * twice or not at all.
+     */
     @Override
     public PaymentsSummary getSummary(Instant from, Instant to) {
+        Generation current = generation;
+        while (true) {
+            Instant compactedBefore = current.payments.compactedBefore();
+            PaymentsSummary summary = getSummary(current, compactedBefore, from, to);
+            if (Objects.equals(compactedBefore, current.payments.compactedBefore())) {
+                return summary;
+            }
+        }
+    }
 
-        Map<RemotePaymentName, PaymentSummary> summary = getStream()
-                .filter(Payment.createdOn(from, to))
-                .collect(Collectors.groupingBy(
-                        payment -> payment.processedBy(),
-                        Collectors.collectingAndThen(
-                                Collectors.toList(),
-                                payments ->
-                                        new PaymentSummary(
-                                                Long.valueOf(payments.size()),
-                                                payments.stream().map(Payment::amount).reduce(BigDecimal.ZERO, BigDecimal::add)
-                                        )
-                        )
-                ));
-
-        return PaymentsSummary.of(summary);
+    private PaymentsSummary getSummary(Generation current, Instant compactedBefore, Instant from, Instant to) {
+        if (compactedBefore == null) {
+            return getLiveSummary(current, from, to);
+        }
+        PaymentsSummary compacted = PaymentsSummary.ZERO;
+        if (from == null || from.isBefore(compactedBefore)) {
+            Instant lastCompacted = compactedBefore.minusNanos(1);
+            compacted = current.rollUps.getSummary(from, to == null || to.isAfter(lastCompacted) ? lastCompacted : to);
+        }
+        Instant liveFrom = from == null || from.isBefore(compactedBefore) ? compactedBefore : from;
+        if (to != null && to.isBefore(liveFrom)) {
+            return compacted;
+        }
+        return compacted.add(getLiveSummary(current, liveFrom, to));
     }
 
-    private Stream<Payment> getStream() {
-        List<Payment> payments = snapshot();
-        if (payments.size() > parallelStreamThreshold)
-            return payments.stream().parallel();
-        return payments.stream();
+    private PaymentsSummary getLiveSummary(Generation current, Instant from, Instant to) {
+        return current.summaryIndex.getSummary(from, to)
+                .orElseGet(() -> scanSummary(current, from, to));
     }
 
-    private List<Payment> snapshot() {
-        return new ArrayList<>(payments);
+    private PaymentsSummary scanSummary(Generation current, Instant from, Instant to) {
+        // reduced on the caller once the pool is shut down
+        boolean parallel = current.payments.size() > parallelStreamThreshold && !reductionPool.isShutdown();
+        return current.payments.summarize(from, to, parallel ? reductionPool : null);
     }
 
+    /**
+     * Lands wholly in one generation, journal record included, without taking any lock: the writer
+     * counts itself in the generation and only goes on while it's open, so a snapshot or a purge closing
+     * it waits for the writers already in. Writers finding it closed wait for the lock the snapshot or
+     * the purge holds meanwhile, then try the generation current by then.
+     */
     @Override
     public void add(Payment payment) {
-        if (payment == null)
-            return;
-        this.payments.offer(payment);
+        while (true) {
+            Generation current = this.generation;
+            if (current.tryStore(payment, this.journal)) {
+                break;
+            }
+            // parked rather than spinning, as the writers being waited for may need this carrier to finish
+            snapshotLock.unlockRead(snapshotLock.readLock());
+        }
+        if (journal.isHalfFull()) {
+            Thread waiting = snapshotter;
+            if (waiting != null) {
+                LockSupport.unpark(waiting);
+            }
+        }
+    }
+
+    // only while replaying the journal, before any writer
+    private boolean store(Payment payment) {
+        return this.generation.store(payment);
+    }
+
+    @Override
+    public boolean contains(String correlationId) {
+        return this.generation.correlationIds.contains(correlationId);
     }
 
+    /**
+     * Swaps in an empty generation. Writers already in the old generation finish there, and their
+     * journal records land before the purge marker; any writer after them lands in the new one, which
+     * is only swapped in once the marker is written.
+     */
     @Override
     public void purge() {
-        this.payments.clear();
+        long stamp = snapshotLock.writeLock();
+        try {
+            this.generation.close();
+            this.journal.appendPurge();
+            clear();
+        } finally {
+            snapshotLock.unlockWrite(stamp);
+        }
+    }
+
+    private void clear() {
+        this.generation = newGeneration();
+    }
+
+    /**
+     * Everything a purge throws away at once.
+     */
+    private static final class Generation {
+
+        private final TimeOrderedSegments payments;
+        private final PaymentsSummaryIndex summaryIndex = new PaymentsSummaryIndex();
+        private final PaymentsRollUps rollUps;
+        private final CorrelationIdSet correlationIds;
+        private final AtomicInteger writers = new AtomicInteger();
+        // while a snapshot cuts it, and for good once purged
+        private volatile boolean closed;
+
+        private Generation(TimeOrderedSegments payments, PaymentsRollUps rollUps, CorrelationIdSet correlationIds) {
+            this.payments = payments;
+            this.rollUps = rollUps;
+            this.correlationIds = correlationIds;
+        }
+
+        /**
+         * @return false, without storing the payment, if the generation is closed
+         */
+        private boolean tryStore(Payment payment, PaymentsJournal journal) {
+            writers.incrementAndGet();
+            try {
+                if (closed) {
+                    return false;
+                }
+                if (store(payment)) {
+                    journal.append(payment);
+                }
+                return true;
+            } finally {
+                writers.decrementAndGet();
+            }
+        }
+
+        // the writers that saw the generation open are waited for, yielding as they may be parked in it
+        private void close() {
+            closed = true;
+            while (writers.get() != 0) {
+                Thread.yield();
+            }
+        }
+
+        private void reopen() {
+            closed = false;
+        }
+
+        private boolean store(Payment payment) {
+            if (payment == null || !this.correlationIds.add(payment.correlationId()))
+                return false;
+            place(payment);
+            return true;
+        }
+
+        private void place(Payment payment) {
+            if (this.payments.add(payment)) {
+                this.summaryIndex.add(payment);
+            } else {
+                this.rollUps.add(payment);
+            }
+        }
+
+        // payments sorted by requestedAt, none of which was compacted
+        private void placeSorted(Payment[] sorted) {
+            this.payments.addSorted(sorted);
+            for (Payment payment : sorted) {
+                this.summaryIndex.add(payment);
+            }
+        }
+
+        private void compact(Instant before) {
+            payments.compactBefore(before, rollUps::add);
+            Instant compactedBefore = payments.compactedBefore();
+            if (compactedBefore != null) {
+                summaryIndex.removeBefore(compactedBefore);
+            }
+        }
     }
 }
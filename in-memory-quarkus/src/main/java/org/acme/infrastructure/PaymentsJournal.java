@@ -0,0 +1,388 @@
+package org.acme.infrastructure;
+
+import io.quarkus.runtime.Startup;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.acme.domain.Payment;
+import org.acme.domain.RemotePaymentName;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Write-ahead journal of the stored payments, as fixed-width records appended to a memory-mapped file.
+ * <p>
+ * Appending claims a record with a compare-and-set and fills it in the mapping, publishing its header
+ * last, so the hot path never waits for the disk: the mapped pages are forced to it in the background
+ * every {@code payments.journal.flush-interval}, covering every record appended since the last flush.
+ * A purge is journaled as a marker record, so replaying the file rebuilds the store as it was. Payments
+ * whose correlation id isn't ASCII of at most 36 characters, or whose amount doesn't fit a long at a
+ * byte sized scale, aren't journaled.
+ * <p>
+ * {@link InMemoryPayments} also checkpoints its whole state next to the journal, in
+ * {@code <payments.journal.path>.snapshot}, every {@code payments.journal.snapshot-interval}, so a
+ * restart only replays the journal past the latest snapshot.
+ * <p>
+ * The file is a ring of {@code payments.journal.capacity} records: records go at their position modulo
+ * the capacity, each stamped with the lap it was written in, so replaying tells them from the records of
+ * the previous lap they overwrote. Records a snapshot doesn't cover yet are never overwritten, appends
+ * rather go unjournaled while the ring is full of them, and a snapshot is asked for once it's half full.
+ * <p>
+ * The journal is disabled unless {@code payments.journal.path} is set.
+ */
+@ApplicationScoped
+public class PaymentsJournal {
+
+    static final int RECORD_SIZE = 64;
+    static final long REGION_SIZE = 64L * 1024 * 1024;
+    public static final long DEFAULT_CAPACITY = 4L * 1024 * 1024;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PaymentsJournal.class);
+    private static final VarHandle HEADER = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final int MAX_REGIONS = 1_024;
+    private static final int MAX_CORRELATION_ID_LENGTH = 36;
+    private static final RemotePaymentName[] PROCESSORS = RemotePaymentName.values();
+
+    private static final int EPOCH_SECOND_OFFSET = 0;
+    private static final int NANOS_OFFSET = 8;
+    private static final int HEADER_OFFSET = 12;
+    private static final int UNSCALED_AMOUNT_OFFSET = 16;
+    private static final int CORRELATION_ID_OFFSET = 24;
+    private static final int LAP_OFFSET = 60;
+
+    private static final byte PAYMENT = 1;
+    private static final byte PURGE = 2;
+
+    private final FileChannel channel;
+    private final Path snapshotPath;
+    private final Duration flushInterval;
+    private final Duration snapshotInterval;
+    private final long capacity;
+    private final long regionSize;
+    private final AtomicReferenceArray<MappedByteBuffer> regions;
+    private final AtomicLong appended = new AtomicLong();
+    private volatile long flushed;
+    // the position the latest snapshot covers the journal up to, records before it may be overwritten
+    private volatile long covered;
+    private volatile boolean full;
+
+    public PaymentsJournal(
+            @ConfigProperty(name = "payments.journal.path")
+            Optional<String> path,
+            @ConfigProperty(name = "payments.journal.flush-interval", defaultValue = "10ms")
+            Duration flushInterval,
+            @ConfigProperty(name = "payments.journal.snapshot-interval", defaultValue = "1m")
+            Duration snapshotInterval,
+            @ConfigProperty(name = "payments.journal.capacity", defaultValue = "4194304")
+            long capacity) {
+        this.flushInterval = flushInterval;
+        this.snapshotInterval = snapshotInterval;
+        // whole regions, unless it all fits in one
+        long bytes = Math.max(1, capacity) * RECORD_SIZE;
+        this.regionSize = Math.min(bytes, REGION_SIZE);
+        this.capacity = (bytes + regionSize - 1) / regionSize * regionSize;
+        if (this.capacity / regionSize > MAX_REGIONS) {
+            throw new IllegalArgumentException("The payments journal can't hold over " + MAX_REGIONS * REGION_SIZE / RECORD_SIZE + " records");
+        }
+        this.regions = new AtomicReferenceArray<>((int) (this.capacity / regionSize));
+        this.channel = path.map(PaymentsJournal::open).orElse(null);
+        this.snapshotPath = path.map(journal -> Path.of(journal + ".snapshot")).orElse(null);
+    }
+
+    public static PaymentsJournal disabled() {
+        return new PaymentsJournal(Optional.empty(), Duration.ZERO, Duration.ZERO, 1);
+    }
+
+    private static FileChannel open(String path) {
+        try {
+            return FileChannel.open(Path.of(path),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open the payments journal at " + path, e);
+        }
+    }
+
+    public boolean isEnabled() {
+        return channel != null;
+    }
+
+    @Startup
+    public void startFlushing() {
+        if (!isEnabled()) {
+            return;
+        }
+        LOGGER.info("Flushing the payments journal every {}", flushInterval);
+        Thread.startVirtualThread(() -> {
+            while (true) {
+                try {
+                    Thread.sleep(flushInterval);
+                    flush();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (RuntimeException e) {
+                    LOGGER.warn("Error flushing the payments journal: {}", e.getMessage(), e);
+                }
+            }
+        });
+    }
+
+    Duration snapshotInterval() {
+        return snapshotInterval;
+    }
+
+    Optional<PaymentsSnapshot> readSnapshot() {
+        if (!isEnabled()) {
+            return Optional.empty();
+        }
+        try {
+            return PaymentsSnapshot.readFrom(snapshotPath);
+        } catch (IOException e) {
+            LOGGER.warn("Ignoring the unreadable payments snapshot at {}: {}", snapshotPath, e.getMessage(), e);
+            return Optional.empty();
+        }
+    }
+
+    void writeSnapshot(PaymentsSnapshot snapshot) {
+        if (!isEnabled()) {
+            return;
+        }
+        try {
+            snapshot.writeTo(snapshotPath);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write the payments snapshot to " + snapshotPath, e);
+        }
+        if (snapshot.journalPosition() > covered) {
+            covered = snapshot.journalPosition();
+        }
+    }
+
+    /**
+     * @return whether the records no snapshot covers yet fill half the ring
+     */
+    boolean isHalfFull() {
+        return isEnabled() && appended.get() - covered > capacity / 2;
+    }
+
+    /**
+     * @return the position after the last record appended, which a snapshot taken while nothing is
+     * appended covers the journal up to
+     */
+    long position() {
+        return appended.get();
+    }
+
+    /**
+     * Replays every record in the journal from {@code from}, over at most a lap of the ring, calling
+     * {@code purge} where a purge was journaled, and makes further appends go after the last record found.
+     */
+    void replay(long from, Consumer<Payment> payment, Runnable purge) {
+        if (!isEnabled()) {
+            return;
+        }
+        long size;
+        try {
+            size = channel.size();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        long end = from;
+        for (long position = from; position < from + capacity; position += RECORD_SIZE) {
+            if (position % capacity + RECORD_SIZE > size) {
+                continue;
+            }
+            MappedByteBuffer region = region(position);
+            int offset = offset(position);
+            int header = (int) HEADER.getAcquire(region, offset + HEADER_OFFSET);
+            // left over from the previous lap
+            if (region.getInt(offset + LAP_OFFSET) != lap(position)) {
+                continue;
+            }
+            switch ((byte) header) {
+                case PAYMENT -> payment.accept(read(region, offset, header));
+                case PURGE -> purge.run();
+                default -> {
+                    continue;
+                }
+            }
+            end = position + RECORD_SIZE;
+        }
+        appended.set(end);
+        flushed = end;
+        covered = from;
+    }
+
+    void append(Payment payment) {
+        if (!isEnabled()) {
+            return;
+        }
+        String correlationId = payment.correlationId();
+        BigDecimal amount = payment.amount();
+        if (!fits(correlationId) || amount.unscaledValue().bitLength() > 63 || amount.scale() != (byte) amount.scale()) {
+            LOGGER.warn("Payment {} can't be journaled", correlationId);
+            return;
+        }
+        long position = claim();
+        if (position < 0) {
+            return;
+        }
+        MappedByteBuffer region = region(position);
+        int offset = offset(position);
+
+        region.putInt(offset + LAP_OFFSET, lap(position));
+        region.putLong(offset + EPOCH_SECOND_OFFSET, payment.requestedAt().getEpochSecond());
+        region.putInt(offset + NANOS_OFFSET, payment.requestedAt().getNano());
+        region.putLong(offset + UNSCALED_AMOUNT_OFFSET, amount.unscaledValue().longValue());
+        for (int i = 0; i < correlationId.length(); i++) {
+            region.put(offset + CORRELATION_ID_OFFSET + i, (byte) correlationId.charAt(i));
+        }
+        HEADER.setRelease(region, offset + HEADER_OFFSET,
+                header(PAYMENT, payment.processedBy().ordinal(), amount.scale(), correlationId.length()));
+    }
+
+    void appendPurge() {
+        if (!isEnabled()) {
+            return;
+        }
+        long position = claim();
+        if (position < 0) {
+            return;
+        }
+        MappedByteBuffer region = region(position);
+        region.putInt(offset(position) + LAP_OFFSET, lap(position));
+        HEADER.setRelease(region, offset(position) + HEADER_OFFSET, header(PURGE, 0, 0, 0));
+    }
+
+    // the position of the next record, or -1 when it would overwrite one no snapshot covers yet
+    private long claim() {
+        while (true) {
+            long position = appended.get();
+            if (position + RECORD_SIZE - covered > capacity) {
+                if (!full) {
+                    full = true;
+                    LOGGER.warn("The payments journal is full until the next snapshot, payments aren't journaled meanwhile");
+                }
+                return -1;
+            }
+            if (appended.compareAndSet(position, position + RECORD_SIZE)) {
+                if (full) {
+                    full = false;
+                }
+                return position;
+            }
+        }
+    }
+
+    /**
+     * Forces the regions holding the records appended since the last flush to the disk.
+     */
+    void flush() {
+        long end = appended.get();
+        long start = flushed;
+        if (!isEnabled() || end == start) {
+            return;
+        }
+        long first = start / regionSize;
+        long last = Math.min((end - 1) / regionSize, first + regions.length() - 1);
+        for (long region = first; region <= last; region++) {
+            MappedByteBuffer mapped = regions.get((int) (region % regions.length()));
+            if (mapped != null) {
+                mapped.force();
+            }
+        }
+        flushed = end;
+    }
+
+    @PreDestroy
+    void close() {
+        if (!isEnabled()) {
+            return;
+        }
+        flush();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            LOGGER.warn("Error closing the payments journal: {}", e.getMessage(), e);
+        }
+    }
+
+    private static boolean fits(String correlationId) {
+        if (correlationId == null || correlationId.length() > MAX_CORRELATION_ID_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < correlationId.length(); i++) {
+            if (correlationId.charAt(i) > 0x7F) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int header(byte type, int processor, int scale, int correlationIdLength) {
+        return (type & 0xFF) | (processor & 0xFF) << 8 | (scale & 0xFF) << 16 | (correlationIdLength & 0xFF) << 24;
+    }
+
+    private static Payment read(MappedByteBuffer region, int offset, int header) {
+        RemotePaymentName processor = PROCESSORS[(header >>> 8) & 0xFF];
+        int scale = (byte) (header >>> 16);
+        int correlationIdLength = header >>> 24;
+        char[] correlationId = new char[correlationIdLength];
+        for (int i = 0; i < correlationIdLength; i++) {
+            correlationId[i] = (char) (region.get(offset + CORRELATION_ID_OFFSET + i) & 0xFF);
+        }
+        return Payment.of(
+                new String(correlationId),
+                processor,
+                new BigDecimal(BigInteger.valueOf(region.getLong(offset + UNSCALED_AMOUNT_OFFSET)), scale),
+                Instant.ofEpochSecond(region.getLong(offset + EPOCH_SECOND_OFFSET), region.getInt(offset + NANOS_OFFSET)));
+    }
+
+    private int offset(long position) {
+        return (int) (position % capacity % regionSize);
+    }
+
+    private int lap(long position) {
+        return (int) (position / capacity);
+    }
+
+    private MappedByteBuffer region(long position) {
+        int number = (int) (position % capacity / regionSize);
+        MappedByteBuffer region = regions.get(number);
+        if (region == null) {
+            region = map(number);
+        }
+        return region;
+    }
+
+    private synchronized MappedByteBuffer map(int number) {
+        MappedByteBuffer region = regions.get(number);
+        if (region == null) {
+            try {
+                region = channel.map(FileChannel.MapMode.READ_WRITE, number * regionSize, regionSize);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to map region " + number + " of the payments journal", e);
+            }
+            region.order(ByteOrder.LITTLE_ENDIAN);
+            regions.set(number, region);
+        }
+        return region;
+    }
+}
@@ -0,0 +1,239 @@
+package org.acme.infrastructure;
+
+import org.acme.domain.Payment;
+import org.acme.domain.PaymentSummary;
+import org.acme.domain.PaymentsSummary;
+import org.acme.domain.RemotePaymentName;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Immutable per-interval aggregates of compacted payments, one interval per {@link TimeOrderedSegments}
+ * segment.
+ * <p>
+ * Payments requested exactly at the start of an interval are also kept apart, so ranges aligned to
+ * the interval get the same answer the raw payments would give. Ranges that cut an interval elsewhere
+ * count it whole if it starts within the range, and not at all otherwise.
+ * <p>
+ * So they don't pile up for as long as the process lives, {@link #retain(Instant, Instant)} folds the
+ * intervals older than a first horizon into coarse, minute long ones, which are exact for ranges aligned
+ * to the minute, and those older than a second horizon into a single total, along with any payment
+ * arriving for them later. That total only counts in ranges starting before the second horizon, and
+ * reaching it.
+ */
+final class PaymentsRollUps {
+
+    private static final long INTERVAL_MILLIS = TimeOrderedSegments.SEGMENT_MILLIS;
+    private static final long COARSE_INTERVAL_MILLIS = 60_000;
+    private static final long INTERVALS_PER_COARSE_INTERVAL = COARSE_INTERVAL_MILLIS / INTERVAL_MILLIS;
+
+    private final ConcurrentSkipListMap<Long, RollUp> rollUps = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<Long, RollUp> coarseRollUps = new ConcurrentSkipListMap<>();
+    // everything requested before foldedBefore
+    private final AtomicReference<PaymentsSummary> before = new AtomicReference<>(PaymentsSummary.ZERO);
+    // intervals before these keys are coarse, and folded into the total before, respectively
+    private volatile long coarseBefore = Long.MIN_VALUE;
+    private volatile long foldedBefore = Long.MIN_VALUE;
+
+    void add(long key, Payment[] payments) {
+        Instant start = Instant.ofEpochMilli(key * INTERVAL_MILLIS);
+        FixedPointSummary all = new FixedPointSummary();
+        FixedPointSummary atStart = new FixedPointSummary();
+        for (Payment payment : payments) {
+            all.add(payment);
+            if (payment.requestedAt().equals(start)) {
+                atStart.add(payment);
+            }
+        }
+        merge(key, new RollUp(all.toPaymentsSummary(), atStart.toPaymentsSummary()));
+    }
+
+    void add(Payment payment) {
+        long key = Math.floorDiv(payment.requestedAt().toEpochMilli(), INTERVAL_MILLIS);
+        merge(key, RollUp.ZERO.add(payment, Instant.ofEpochMilli(key * INTERVAL_MILLIS)));
+    }
+
+    private void merge(long key, RollUp rollUp) {
+        if (key < foldedBefore) {
+            before.accumulateAndGet(rollUp.all(), PaymentsSummary::add);
+        } else if (key < coarseBefore) {
+            mergeCoarse(key, rollUp);
+        } else {
+            rollUps.merge(key, rollUp, RollUp::add);
+        }
+    }
+
+    // only what was requested at the start of the coarse interval is at its start
+    private void mergeCoarse(long key, RollUp rollUp) {
+        RollUp coarse = Math.floorMod(key, INTERVALS_PER_COARSE_INTERVAL) == 0 ? rollUp : new RollUp(rollUp.all(), PaymentsSummary.ZERO);
+        coarseRollUps.merge(Math.floorDiv(key, INTERVALS_PER_COARSE_INTERVAL), coarse, RollUp::add);
+    }
+
+    /**
+     * Folds the intervals starting before {@code coarseBefore} into coarse ones, and the intervals
+     * starting before {@code foldBefore} into the total before them. Both are rounded down to a coarse
+     * interval, and only ever move forward.
+     * <p>
+     * Summaries taken meanwhile may miss an interval being folded.
+     */
+    void retain(Instant coarseBefore, Instant foldBefore) {
+        long foldKey = Math.floorDiv(foldBefore.toEpochMilli(), COARSE_INTERVAL_MILLIS) * INTERVALS_PER_COARSE_INTERVAL;
+        long coarseKey = Math.max(foldKey,
+                Math.floorDiv(coarseBefore.toEpochMilli(), COARSE_INTERVAL_MILLIS) * INTERVALS_PER_COARSE_INTERVAL);
+        if (foldKey > foldedBefore) {
+            foldedBefore = foldKey;
+        }
+        if (coarseKey > this.coarseBefore) {
+            this.coarseBefore = coarseKey;
+        }
+        // also picks up the intervals merged by writers that read the old boundaries
+        for (Long key : rollUps.headMap(this.coarseBefore).keySet()) {
+            RollUp rollUp = rollUps.remove(key);
+            if (rollUp != null) {
+                merge(key, rollUp);
+            }
+        }
+        for (Long key : coarseRollUps.headMap(Math.floorDiv(foldedBefore, INTERVALS_PER_COARSE_INTERVAL)).keySet()) {
+            RollUp rollUp = coarseRollUps.remove(key);
+            if (rollUp != null) {
+                before.accumulateAndGet(rollUp.all(), PaymentsSummary::add);
+            }
+        }
+    }
+
+    PaymentsSummary getSummary(Instant from, Instant to) {
+        if (from != null && to != null && from.isAfter(to)) {
+            return PaymentsSummary.ZERO;
+        }
+        PaymentsSummary summary = getSummary(coarseRollUps, COARSE_INTERVAL_MILLIS, from, to)
+                .add(getSummary(rollUps, INTERVAL_MILLIS, from, to));
+        long foldedBefore = this.foldedBefore;
+        if (foldedBefore != Long.MIN_VALUE) {
+            Instant horizon = Instant.ofEpochMilli(foldedBefore * INTERVAL_MILLIS);
+            if ((from == null || from.isBefore(horizon)) && (to == null || !to.isBefore(horizon))) {
+                summary = summary.add(before.get());
+            }
+        }
+        return summary;
+    }
+
+    private static PaymentsSummary getSummary(NavigableMap<Long, RollUp> rollUps, long intervalMillis, Instant from, Instant to) {
+        NavigableMap<Long, RollUp> range = rollUps;
+        if (from != null) {
+            range = range.tailMap(Math.floorDiv(from.toEpochMilli(), intervalMillis), true);
+        }
+        if (to != null) {
+            range = range.headMap(Math.floorDiv(to.toEpochMilli(), intervalMillis), true);
+        }
+        PaymentsSummary summary = PaymentsSummary.ZERO;
+        for (var entry : range.entrySet()) {
+            Instant start = Instant.ofEpochMilli(entry.getKey() * intervalMillis);
+            if (from != null && start.isBefore(from)) {
+                continue;
+            }
+            summary = summary.add(start.equals(to) ? entry.getValue().atStart() : entry.getValue().all());
+        }
+        return summary;
+    }
+
+    /**
+     * How many intervals are kept, fine and coarse.
+     */
+    int size() {
+        return rollUps.size() + coarseRollUps.size();
+    }
+
+    void clear() {
+        rollUps.clear();
+        coarseRollUps.clear();
+        before.set(PaymentsSummary.ZERO);
+    }
+
+    PaymentsRollUps copy() {
+        PaymentsRollUps copy = new PaymentsRollUps();
+        copy.coarseBefore = coarseBefore;
+        copy.foldedBefore = foldedBefore;
+        copy.before.set(before.get());
+        copy.rollUps.putAll(rollUps);
+        copy.coarseRollUps.putAll(coarseRollUps);
+        return copy;
+    }
+
+    /**
+     * Meant for a {@link #copy()}, which nothing else writes to.
+     */
+    void writeTo(DataOutput out) throws IOException {
+        out.writeLong(coarseBefore);
+        out.writeLong(foldedBefore);
+        writeSummary(out, before.get());
+        writeRollUps(out, rollUps);
+        writeRollUps(out, coarseRollUps);
+    }
+
+    static PaymentsRollUps readFrom(DataInput in) throws IOException {
+        PaymentsRollUps rollUps = new PaymentsRollUps();
+        rollUps.coarseBefore = in.readLong();
+        rollUps.foldedBefore = in.readLong();
+        rollUps.before.set(readSummary(in));
+        readRollUps(in, rollUps.rollUps);
+        readRollUps(in, rollUps.coarseRollUps);
+        return rollUps;
+    }
+
+    private static void writeRollUps(DataOutput out, NavigableMap<Long, RollUp> rollUps) throws IOException {
+        out.writeInt(rollUps.size());
+        for (var entry : rollUps.entrySet()) {
+            out.writeLong(entry.getKey());
+            writeSummary(out, entry.getValue().all());
+            writeSummary(out, entry.getValue().atStart());
+        }
+    }
+
+    private static void readRollUps(DataInput in, NavigableMap<Long, RollUp> rollUps) throws IOException {
+        for (int i = in.readInt(); i > 0; i--) {
+            long key = in.readLong();
+            rollUps.put(key, new RollUp(readSummary(in), readSummary(in)));
+        }
+    }
+
+    private static void writeSummary(DataOutput out, PaymentsSummary summary) throws IOException {
+        for (PaymentSummary processor : List.of(summary.defaultPaymentSummary(), summary.fallbackPaymentSummary())) {
+            out.writeLong(processor.totalRequests());
+            PaymentsSnapshot.writeAmount(out, processor.totalAmount());
+        }
+    }
+
+    private static PaymentsSummary readSummary(DataInput in) throws IOException {
+        PaymentSummary defaultPaymentSummary = PaymentSummary.of(in.readLong(), PaymentsSnapshot.readAmount(in));
+        PaymentSummary fallbackPaymentSummary = PaymentSummary.of(in.readLong(), PaymentsSnapshot.readAmount(in));
+        return PaymentsSummary.of(defaultPaymentSummary, fallbackPaymentSummary);
+    }
+
+    private record RollUp(PaymentsSummary all, PaymentsSummary atStart) {
+
+        private static final RollUp ZERO = new RollUp(PaymentsSummary.ZERO, PaymentsSummary.ZERO);
+
+        private RollUp add(Payment payment, Instant start) {
+            return new RollUp(
+                    add(all, payment),
+                    payment.requestedAt().equals(start) ? add(atStart, payment) : atStart);
+        }
+
+        private RollUp add(RollUp rollUp) {
+            return new RollUp(all.add(rollUp.all), atStart.add(rollUp.atStart));
+        }
+
+        private static PaymentsSummary add(PaymentsSummary summary, Payment payment) {
+            return payment.processedBy() == RemotePaymentName.DEFAULT
+                    ? PaymentsSummary.of(summary.defaultPaymentSummary().add(payment), summary.fallbackPaymentSummary())
+                    : PaymentsSummary.of(summary.defaultPaymentSummary(), summary.fallbackPaymentSummary().add(payment));
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package org.acme.infrastructure;
+
+import org.acme.domain.Payment;
+import org.acme.domain.RemotePaymentName;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Optional;
+
+/**
+ * Binary checkpoint of {@link InMemoryPayments}: the roll-ups of compacted payments, the stored
+ * correlation ids and the live payments, written column by column, along with the journal position
+ * the checkpoint covers, so only the journal past it has to be replayed.
+ */
+record PaymentsSnapshot(
+        long journalPosition,
+        Instant compactedBefore,
+        Payment[] payments,
+        PaymentsRollUps rollUps,
+        CorrelationIdSet correlationIds) {
+
+    private static final int MAGIC = 0x50534E50;
+    private static final int VERSION = 3;
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final RemotePaymentName[] PROCESSORS = RemotePaymentName.values();
+
+    /**
+     * Writes the snapshot next to {@code path} and moves it over it, so a crash while writing leaves the
+     * previous snapshot in place.
+     */
+    void writeTo(Path path) throws IOException {
+        Path written = path.resolveSibling(path.getFileName() + ".tmp");
+        try (OutputStream stream = Files.newOutputStream(written);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, BUFFER_SIZE))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(journalPosition);
+            out.writeBoolean(compactedBefore != null);
+            if (compactedBefore != null) {
+                writeInstant(out, compactedBefore);
+            }
+            rollUps.writeTo(out);
+            correlationIds.writeTo(out);
+            writePayments(out, payments);
+        }
+        Files.move(written, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static Optional<PaymentsSnapshot> readFrom(Path path) throws IOException {
+        try (InputStream stream = Files.newInputStream(path);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(stream, BUFFER_SIZE))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a payments snapshot of version " + VERSION + ": " + path);
+            }
+            long journalPosition = in.readLong();
+            Instant compactedBefore = in.readBoolean() ? readInstant(in) : null;
+            PaymentsRollUps rollUps = PaymentsRollUps.readFrom(in);
+            CorrelationIdSet correlationIds = CorrelationIdSet.readFrom(in);
+            Payment[] payments = readPayments(in);
+            return Optional.of(new PaymentsSnapshot(journalPosition, compactedBefore, payments, rollUps, correlationIds));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        }
+    }
+
+    // Payments are written sorted by requestedAt, so restoring them builds the sealed segments in bulk.
+    private static void writePayments(DataOutput out, Payment[] payments) throws IOException {
+        Payment[] sorted = payments.clone();
+        Arrays.sort(sorted, Comparator.comparing(Payment::requestedAt));
+        out.writeInt(sorted.length);
+        for (Payment payment : sorted) {
+            out.writeLong(payment.requestedAt().getEpochSecond());
+        }
+        for (Payment payment : sorted) {
+            out.writeInt(payment.requestedAt().getNano());
+        }
+        for (Payment payment : sorted) {
+            out.writeByte(payment.processedBy().ordinal());
+        }
+        for (Payment payment : sorted) {
+            writeAmount(out, payment.amount());
+        }
+        for (Payment payment : sorted) {
+            out.writeBoolean(payment.correlationId() != null);
+            if (payment.correlationId() != null) {
+                out.writeUTF(payment.correlationId());
+            }
+        }
+    }
+
+    private static Payment[] readPayments(DataInput in) throws IOException {
+        int size = in.readInt();
+        long[] epochSeconds = new long[size];
+        for (int i = 0; i < size; i++) {
+            epochSeconds[i] = in.readLong();
+        }
+        int[] nanos = new int[size];
+        for (int i = 0; i < size; i++) {
+            nanos[i] = in.readInt();
+        }
+        byte[] processors = new byte[size];
+        in.readFully(processors);
+        BigDecimal[] amounts = new BigDecimal[size];
+        for (int i = 0; i < size; i++) {
+            amounts[i] = readAmount(in);
+        }
+        Payment[] payments = new Payment[size];
+        for (int i = 0; i < size; i++) {
+            payments[i] = Payment.of(
+                    in.readBoolean() ? in.readUTF() : null,
+                    PROCESSORS[processors[i]],
+                    amounts[i],
+                    Instant.ofEpochSecond(epochSeconds[i], nanos[i]));
+        }
+        return payments;
+    }
+
+    static void writeAmount(DataOutput out, BigDecimal amount) throws IOException {
+        byte[] unscaled = amount.unscaledValue().toByteArray();
+        out.writeInt(amount.scale());
+        out.writeShort(unscaled.length);
+        out.write(unscaled);
+    }
+
+    static BigDecimal readAmount(DataInput in) throws IOException {
+        int scale = in.readInt();
+        byte[] unscaled = new byte[in.readUnsignedShort()];
+        in.readFully(unscaled);
+        return new BigDecimal(new BigInteger(unscaled), scale);
+    }
+
+    private static void writeInstant(DataOutput out, Instant instant) throws IOException {
+        out.writeLong(instant.getEpochSecond());
+        out.writeInt(instant.getNano());
+    }
+
+    private static Instant readInstant(DataInput in) throws IOException {
+        return Instant.ofEpochSecond(in.readLong(), in.readInt());
+    }
+}
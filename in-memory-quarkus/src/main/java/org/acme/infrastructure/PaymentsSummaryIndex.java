@@ -0,0 +1,267 @@
+package org.acme.infrastructure;
+
+import org.acme.domain.Payment;
+import org.acme.domain.PaymentsSummary;
+import org.acme.domain.RemotePaymentName;
+
+import java.time.Instant;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntFunction;
+
+/**
+ * Pre-aggregated count/amount per processor in one millisecond buckets, grouped in one second pages.
+ * <p>
+ * Every page keeps prefix sums over its buckets, as a Fenwick tree per processor, so adding a payment
+ * and summing any run of buckets both take about {@code log2(1000)} steps: a {@code [from, to]} query
+ * reads two prefixes in each of the pages at its edges and one in each page in between. A page only
+ * allocates the trees of the processors, and of the amount scales, it was given payments for.
+ * <p>
+ * Buckets are only able to answer queries whose bounds are aligned to the millisecond: the bucket of
+ * {@code to} must only contribute the payments requested exactly at {@code to}, so those are also
+ * tracked apart, in arrays a page only allocates once it is given such a payment. Any other query, or
+ * any payment whose amount can't be represented by {@link FixedPointAmounts}, makes
+ * {@link #getSummary(Instant, Instant)} return empty so the caller can fall back to evaluating
+ * {@link Payment#createdOn(Instant, Instant)} over the payments. A query racing payments added before
+ * its start, within the same page, may be off by them until they're all added.
+ */
+final class PaymentsSummaryIndex {
+
+    private static final int BUCKETS_PER_PAGE = 1_000;
+    private static final int NANOS_PER_MILLI = 1_000_000;
+    private static final RemotePaymentName[] PROCESSORS = RemotePaymentName.values();
+
+    private final ConcurrentSkipListMap<Long, Page> pages = new ConcurrentSkipListMap<>();
+
+    private volatile boolean exact = true;
+
+    void add(Payment payment) {
+        Instant requestedAt = payment.requestedAt();
+        long units;
+        long millis;
+        int scale = Math.max(0, payment.amount().scale());
+        try {
+            units = FixedPointAmounts.toUnits(payment.amount());
+            millis = requestedAt.toEpochMilli();
+        } catch (RuntimeException e) {
+            exact = false;
+            return;
+        }
+        if (scale > FixedPointAmounts.SCALE) {
+            // trailing zeros past the units, the trees only count the scales up to theirs
+            exact = false;
+            return;
+        }
+        long pageKey = Math.floorDiv(millis, BUCKETS_PER_PAGE);
+        int bucket = (int) Math.floorMod(millis, BUCKETS_PER_PAGE);
+        int processor = payment.processedBy().ordinal();
+
+        Page page = pages.get(pageKey);
+        if (page == null) {
+            page = pages.computeIfAbsent(pageKey, key -> new Page());
+        }
+        page.within(processor).add(bucket, units, scale);
+        if (requestedAt.getNano() % NANOS_PER_MILLI == 0) {
+            page.at().add(bucket * PROCESSORS.length + processor, units, FixedPointAmounts.scaleBit(payment.amount()));
+        }
+    }
+
+    Optional<PaymentsSummary> getSummary(Instant from, Instant to) {
+        if (!exact || !isMillisAligned(from) || !isMillisAligned(to)) {
+            return Optional.empty();
+        }
+        Long fromMillis;
+        Long toMillis;
+        try {
+            fromMillis = from == null ? null : from.toEpochMilli();
+            toMillis = to == null ? null : to.toEpochMilli();
+        } catch (ArithmeticException e) {
+            return Optional.empty();
+        }
+        if (fromMillis != null && toMillis != null && fromMillis > toMillis) {
+            return Optional.of(PaymentsSummary.ZERO);
+        }
+
+        NavigableMap<Long, Page> range = pages;
+        if (fromMillis != null) {
+            range = range.tailMap(Math.floorDiv(fromMillis, BUCKETS_PER_PAGE), true);
+        }
+        if (toMillis != null) {
+            range = range.headMap(Math.floorDiv(toMillis, BUCKETS_PER_PAGE), true);
+        }
+
+        FixedPointSummary summary = new FixedPointSummary();
+        range.forEach((pageKey, page) -> {
+            long pageStart = pageKey * BUCKETS_PER_PAGE;
+            int fromBucket = fromMillis == null ? 0 : (int) Math.max(0, fromMillis - pageStart);
+            int toBucket = toMillis == null ? BUCKETS_PER_PAGE : (int) Math.min(BUCKETS_PER_PAGE, toMillis - pageStart);
+            for (int processor = 0; processor < PROCESSORS.length; processor++) {
+                PrefixSums within = page.within.get(processor);
+                if (within != null) {
+                    within.collect(fromBucket, toBucket, PROCESSORS[processor], summary);
+                }
+            }
+            Aggregates at = page.at;
+            if (toBucket < BUCKETS_PER_PAGE && at != null) {
+                at.collect(toBucket * PROCESSORS.length, summary);
+            }
+        });
+
+        return Optional.of(summary.toPaymentsSummary());
+    }
+
+    void removeBefore(Instant before) {
+        pages.headMap(Math.floorDiv(before.toEpochMilli(), BUCKETS_PER_PAGE), false).clear();
+    }
+
+    void clear() {
+        pages.clear();
+        exact = true;
+    }
+
+    private static boolean isMillisAligned(Instant instant) {
+        return instant == null || instant.getNano() % NANOS_PER_MILLI == 0;
+    }
+
+    private static <T> T getOrCreate(AtomicReferenceArray<T> slots, int index, IntFunction<T> factory) {
+        T value = slots.get(index);
+        if (value == null) {
+            T created = factory.apply(index);
+            value = slots.compareAndSet(index, null, created) ? created : slots.get(index);
+        }
+        return value;
+    }
+
+    private static final class Page {
+
+        private final AtomicReferenceArray<PrefixSums> within = new AtomicReferenceArray<>(PROCESSORS.length);
+        private volatile Aggregates at;
+
+        private PrefixSums within(int processor) {
+            return getOrCreate(within, processor, ignored -> new PrefixSums());
+        }
+
+        private Aggregates at() {
+            Aggregates aggregates = at;
+            if (aggregates == null) {
+                synchronized (this) {
+                    aggregates = at;
+                    if (aggregates == null) {
+                        at = aggregates = new Aggregates(BUCKETS_PER_PAGE * PROCESSORS.length);
+                    }
+                }
+            }
+            return aggregates;
+        }
+    }
+
+    /**
+     * One processor's counts and units, plus a count per non-zero scale, as Fenwick trees over the
+     * buckets of a page.
+     * <p>
+     * Scales can't be subtracted as bit sets, hence the counts: a scale is in a run of buckets when it
+     * counts payments there, and zero is when fewer were counted with a scale than in total. Adds write
+     * the scales, then the units, then the counts, and sums read them the other way around, so a sum
+     * never renders units with fewer decimal places than they were added with.
+     */
+    private static final class PrefixSums {
+
+        private final AtomicIntegerArray counts = new AtomicIntegerArray(BUCKETS_PER_PAGE + 1);
+        private final AtomicLongArray units = new AtomicLongArray(BUCKETS_PER_PAGE + 1);
+        private final AtomicReferenceArray<AtomicIntegerArray> scaleCounts =
+                new AtomicReferenceArray<>(FixedPointAmounts.SCALE + 1);
+
+        private void add(int bucket, long amountUnits, int scale) {
+            if (scale > 0) {
+                AtomicIntegerArray scaleCount = getOrCreate(scaleCounts, scale,
+                        ignored -> new AtomicIntegerArray(BUCKETS_PER_PAGE + 1));
+                for (int i = bucket + 1; i <= BUCKETS_PER_PAGE; i += i & -i) {
+                    scaleCount.getAndIncrement(i);
+                }
+            }
+            for (int i = bucket + 1; i <= BUCKETS_PER_PAGE; i += i & -i) {
+                units.getAndAdd(i, amountUnits);
+            }
+            for (int i = bucket + 1; i <= BUCKETS_PER_PAGE; i += i & -i) {
+                counts.getAndIncrement(i);
+            }
+        }
+
+        // sums the buckets in [fromBucket, toBucket)
+        private void collect(int fromBucket, int toBucket, RemotePaymentName processor, FixedPointSummary summary) {
+            if (fromBucket >= toBucket) {
+                return;
+            }
+            long count = prefix(counts, toBucket) - prefix(counts, fromBucket);
+            if (count <= 0) {
+                return;
+            }
+            long amountUnits = prefix(units, toBucket) - prefix(units, fromBucket);
+            int scales = 0;
+            long scaled = 0;
+            for (int scale = 1; scale <= FixedPointAmounts.SCALE; scale++) {
+                AtomicIntegerArray scaleCount = scaleCounts.get(scale);
+                if (scaleCount != null) {
+                    long counted = prefix(scaleCount, toBucket) - prefix(scaleCount, fromBucket);
+                    if (counted > 0) {
+                        scales |= 1 << scale;
+                        scaled += counted;
+                    }
+                }
+            }
+            if (count > scaled) {
+                scales |= 1;
+            }
+            summary.add(processor, count, amountUnits, scales);
+        }
+
+        // sums the first buckets of the tree
+        private static long prefix(AtomicIntegerArray tree, int buckets) {
+            long sum = 0;
+            for (int i = buckets; i > 0; i -= i & -i) {
+                sum += tree.get(i);
+            }
+            return sum;
+        }
+
+        private static long prefix(AtomicLongArray tree, int buckets) {
+            long sum = 0;
+            for (int i = buckets; i > 0; i -= i & -i) {
+                sum += tree.get(i);
+            }
+            return sum;
+        }
+    }
+
+    private static final class Aggregates {
+
+        private final AtomicLongArray counts;
+        private final AtomicLongArray units;
+        private final AtomicIntegerArray scales;
+
+        private Aggregates(int length) {
+            this.counts = new AtomicLongArray(length);
+            this.units = new AtomicLongArray(length);
+            this.scales = new AtomicIntegerArray(length);
+        }
+
+        private void add(int index, long amountUnits, int scaleBit) {
+            if ((scales.get(index) & scaleBit) == 0) {
+                scales.getAndAccumulate(index, scaleBit, (current, bit) -> current | bit);
+            }
+            units.getAndAdd(index, amountUnits);
+            counts.getAndIncrement(index);
+        }
+
+        private void collect(int offset, FixedPointSummary summary) {
+            for (int processor = 0; processor < PROCESSORS.length; processor++) {
+                int index = offset + processor;
+                summary.add(PROCESSORS[processor], counts.get(index), units.get(index), scales.get(index));
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package org.acme.infrastructure;
+
+/**
+ * Kernel summing the {@link SegmentColumns} of the payments requested within a range of offsets.
+ * <p>
+ * {@link #preferred()} picks the Vector API kernel when the JVM runs with
+ * {@code --add-modules jdk.incubator.vector}, and the scalar one otherwise. The vector kernel is only
+ * loaded by name, so nothing links against the incubator module when it isn't there.
+ */
+interface RangeAggregation {
+
+    RangeAggregation SCALAR = new ScalarRangeAggregation();
+
+    /**
+     * Adds the payments whose offset is within {@code [fromOffset, toOffset]} to {@code summary}.
+     */
+    void sum(SegmentColumns columns, long fromOffset, long toOffset, FixedPointSummary summary);
+
+    static RangeAggregation preferred() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                return (RangeAggregation) Class.forName("org.acme.infrastructure.VectorRangeAggregation")
+                        .getDeclaredConstructor()
+                        .newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // not usable on this JVM, the scalar kernel is
+            }
+        }
+        return SCALAR;
+    }
+}
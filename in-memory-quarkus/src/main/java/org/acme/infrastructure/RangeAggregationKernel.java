@@ -0,0 +1,70 @@
+package org.acme.infrastructure;
+
+import org.acme.domain.Payment;
+import org.acme.domain.PaymentsSummary;
+
+import java.time.Instant;
+
+/**
+ * The {@link RangeAggregation} kernels the summaries run, for benchmarks and tools outside this package:
+ * payments are laid out as {@link Columns} once, then summed over ranges of their request times.
+ */
+public final class RangeAggregationKernel {
+
+    public static final RangeAggregationKernel SCALAR = new RangeAggregationKernel(RangeAggregation.SCALAR);
+
+    private final RangeAggregation aggregation;
+
+    private RangeAggregationKernel(RangeAggregation aggregation) {
+        this.aggregation = aggregation;
+    }
+
+    /**
+     * The Vector API kernel when the JVM runs with {@code --add-modules jdk.incubator.vector}, the scalar
+     * one otherwise.
+     */
+    public static RangeAggregationKernel preferred() {
+        RangeAggregation preferred = RangeAggregation.preferred();
+        return preferred == RangeAggregation.SCALAR ? SCALAR : new RangeAggregationKernel(preferred);
+    }
+
+    public boolean isVectorized() {
+        return aggregation != RangeAggregation.SCALAR;
+    }
+
+    /**
+     * @throws IllegalArgumentException if an amount doesn't fit the units, or summing them could overflow
+     */
+    public static Columns columns(Payment[] sortedPayments, Instant start) {
+        SegmentColumns columns = SegmentColumns.of(sortedPayments, start);
+        if (columns == null) {
+            throw new IllegalArgumentException("Payments that don't fit the columns' units");
+        }
+        return new Columns(columns, start);
+    }
+
+    /**
+     * Sums the payments requested within {@code [from, to]}.
+     */
+    public PaymentsSummary sum(Columns columns, Instant from, Instant to) {
+        FixedPointSummary summary = new FixedPointSummary();
+        aggregation.sum(columns.columns,
+                SegmentColumns.offsetOf(columns.start, from), SegmentColumns.offsetOf(columns.start, to), summary);
+        return summary.toPaymentsSummary();
+    }
+
+    public static final class Columns {
+
+        private final SegmentColumns columns;
+        private final Instant start;
+
+        private Columns(SegmentColumns columns, Instant start) {
+            this.columns = columns;
+            this.start = start;
+        }
+
+        public int size() {
+            return columns.size();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package org.acme.infrastructure;
+
+import io.quarkus.arc.DefaultBean;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.acme.domain.DefaultRemotePaymentProcessor;
+import org.acme.domain.FallbackRemotePaymentProcessor;
+import org.acme.domain.RemotePaymentClient;
+import org.acme.domain.RemotePaymentName;
+import org.acme.domain.RemotePaymentProcessor;
+import org.eclipse.microprofile.rest.client.inject.RestClient;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * {@link RemotePaymentClient} over the REST clients, blocking the calling worker until the processor
+ * answers, so the stage it returns is always complete.
+ */
+@ApplicationScoped
+@DefaultBean
+public class RestRemotePaymentClient implements RemotePaymentClient {
+
+    private final DefaultRemotePaymentProcessor defaultRemotePaymentProcessor;
+    private final FallbackRemotePaymentProcessor fallbackRemotePaymentProcessor;
+
+    @Inject
+    public RestRemotePaymentClient(
+            @RestClient
+            DefaultRemotePaymentProcessor defaultRemotePaymentProcessor,
+            @RestClient
+            FallbackRemotePaymentProcessor fallbackRemotePaymentProcessor) {
+        this.defaultRemotePaymentProcessor = defaultRemotePaymentProcessor;
+        this.fallbackRemotePaymentProcessor = fallbackRemotePaymentProcessor;
+    }
+
+    @Override
+    public CompletionStage<Integer> post(RemotePaymentName processor, byte[] body) {
+        RemotePaymentProcessor remotePaymentProcessor = processor == RemotePaymentName.DEFAULT
+                ? defaultRemotePaymentProcessor
+                : fallbackRemotePaymentProcessor;
+        try {
+            return CompletableFuture.completedFuture(remotePaymentProcessor.processPayment(body).getStatus());
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public boolean isBlocking() {
+        return true;
+    }
+
+}
@@ -0,0 +1,38 @@
+package org.acme.infrastructure;
+
+import org.acme.domain.RemotePaymentName;
+
+final class ScalarRangeAggregation implements RangeAggregation {
+
+    private static final RemotePaymentName[] PROCESSORS = RemotePaymentName.values();
+
+    @Override
+    public void sum(SegmentColumns columns, long fromOffset, long toOffset, FixedPointSummary summary) {
+        sum(columns, 0, columns.size(), fromOffset, toOffset, summary);
+    }
+
+    static void sum(SegmentColumns columns, int from, int to, long fromOffset, long toOffset, FixedPointSummary summary) {
+        long[] counts = new long[PROCESSORS.length];
+        long[] units = new long[PROCESSORS.length];
+        int[] scales = new int[PROCESSORS.length];
+        for (int i = from; i < to; i++) {
+            long offset = columns.offsets[i];
+            if (offset < fromOffset || offset > toOffset) {
+                continue;
+            }
+            long tag = columns.tags[i];
+            int processor = (int) (tag & SegmentColumns.PROCESSOR_MASK);
+            counts[processor]++;
+            units[processor] += columns.units[i];
+            scales[processor] |= (int) (tag >>> SegmentColumns.SCALE_BIT_SHIFT);
+        }
+        for (int processor = 0; processor < PROCESSORS.length; processor++) {
+            summary.add(PROCESSORS[processor], counts[processor], units[processor], scales[processor]);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "scalar";
+    }
+}
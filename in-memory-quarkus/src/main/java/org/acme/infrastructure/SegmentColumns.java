@@ -0,0 +1,67 @@
+package org.acme.infrastructure;
+
+import org.acme.domain.Payment;
+
+import java.time.Instant;
+
+/**
+ * The payments of a sealed segment as primitive columns, for {@link RangeAggregation} kernels: the
+ * nanoseconds each payment was requested after the segment start, its amount as
+ * {@link FixedPointAmounts} units, and a tag holding its processor ordinal in the low byte and the
+ * scale bit of its amount above it.
+ */
+final class SegmentColumns {
+
+    static final int PROCESSOR_MASK = 0xFF;
+    static final int SCALE_BIT_SHIFT = 8;
+
+    final long[] offsets;
+    final long[] units;
+    final long[] tags;
+
+    private SegmentColumns(int size) {
+        this.offsets = new long[size];
+        this.units = new long[size];
+        this.tags = new long[size];
+    }
+
+    /**
+     * @return null if an amount doesn't fit the units, or if summing any of them could overflow, as the
+     * kernels sum without checking
+     */
+    static SegmentColumns of(Payment[] payments, Instant start) {
+        SegmentColumns columns = new SegmentColumns(payments.length);
+        long magnitude = 0;
+        try {
+            for (int i = 0; i < payments.length; i++) {
+                Payment payment = payments[i];
+                long units = FixedPointAmounts.toUnits(payment.amount());
+                magnitude = Math.addExact(magnitude, Math.absExact(units));
+                columns.offsets[i] = offsetOf(start, payment.requestedAt());
+                columns.units[i] = units;
+                columns.tags[i] = (long) FixedPointAmounts.scaleBit(payment.amount()) << SCALE_BIT_SHIFT
+                        | payment.processedBy().ordinal();
+            }
+        } catch (ArithmeticException e) {
+            return null;
+        }
+        return columns;
+    }
+
+    /**
+     * @return the nanoseconds from {@code start} to {@code instant}, saturated to the long range
+     */
+    static long offsetOf(Instant start, Instant instant) {
+        try {
+            return Math.addExact(
+                    Math.multiplyExact(Math.subtractExact(instant.getEpochSecond(), start.getEpochSecond()), 1_000_000_000L),
+                    instant.getNano() - start.getNano());
+        } catch (ArithmeticException e) {
+            return instant.isBefore(start) ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+    }
+
+    int size() {
+        return offsets.length;
+    }
+}
@@ -0,0 +1,411 @@
+package org.acme.infrastructure;
+
+import org.acme.domain.Payment;
+import org.acme.domain.PaymentsSummary;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+
+/**
+ * Payments partitioned in one second segments of {@code requestedAt}.
+ * <p>
+ * {@code requestedAt} is stamped before the remote call, so payments arrive slightly out of order: a
+ * segment stays open, collecting payments in arrival order, until the latest {@code requestedAt} seen
+ * is more than the reorder window past its end. It's then sealed and sorted, so range queries can
+ * binary search it, and its per-processor sums are cached, so summaries only reduce the segments
+ * still open and the ones cut by the range, the latter through a {@link RangeAggregation} kernel over
+ * their {@link SegmentColumns}. Payments arriving after their segment was sealed are kept
+ * in a small late queue of that segment, which is always evaluated in full, so nothing is lost
+ * whatever the lateness.
+ * <p>
+ * Segments can also be compacted away once they're older than the retention horizon: they're closed to
+ * writers and handed over whole, and {@link #add(Payment)} refuses payments for them from then on.
+ */
+final class TimeOrderedSegments {
+
+    static final long SEGMENT_MILLIS = 1_000;
+    private static final int OPEN_CHUNK_SIZE = 1_024;
+    private static final int LATE_CHUNK_SIZE = 32;
+    private static final Comparator<Payment> BY_REQUESTED_AT = Comparator.comparing(Payment::requestedAt);
+
+    private final long reorderWindowMillis;
+    private final RangeAggregation aggregation;
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+    private volatile ChunkedAppendLog<Payment> outliers = new ChunkedAppendLog<>(LATE_CHUNK_SIZE);
+    private final AtomicLong size = new AtomicLong();
+    private final AtomicLong latestMillis = new AtomicLong(Long.MIN_VALUE);
+    private final AtomicLong sealedBefore = new AtomicLong(Long.MIN_VALUE);
+    private final AtomicLong closedBefore = new AtomicLong(Long.MIN_VALUE);
+    private volatile Instant compactedBefore;
+
+    TimeOrderedSegments(long reorderWindowMillis, RangeAggregation aggregation) {
+        this.reorderWindowMillis = reorderWindowMillis;
+        this.aggregation = aggregation;
+    }
+
+    /**
+     * @return false if the segment of the payment was already compacted
+     */
+    boolean add(Payment payment) {
+        long millis;
+        try {
+            millis = payment.requestedAt().toEpochMilli();
+        } catch (RuntimeException e) {
+            outliers.append(payment);
+            size.incrementAndGet();
+            return true;
+        }
+        long key = Math.floorDiv(millis, SEGMENT_MILLIS);
+        if (key < closedBefore.get()) {
+            return false;
+        }
+        Segment segment = segments.get(key);
+        if (segment == null) {
+            segment = segments.computeIfAbsent(key, Segment::new);
+        }
+        if (!segment.add(payment)) {
+            return false;
+        }
+        size.incrementAndGet();
+
+        if (millis > latestMillis.get() && latestMillis.accumulateAndGet(millis, Math::max) == millis) {
+            sealUpTo(Math.floorDiv(millis - reorderWindowMillis, SEGMENT_MILLIS));
+        }
+        return true;
+    }
+
+    /**
+     * Adds payments sorted by {@code requestedAt} to segments nothing was added to yet: the segments the
+     * latest of them is already past the reorder window of are built sealed straight from their slice of
+     * the array, the others are filled as by {@link #add(Payment)}.
+     */
+    void addSorted(Payment[] payments) {
+        long latest = Long.MIN_VALUE;
+        for (Payment payment : payments) {
+            try {
+                latest = Math.max(latest, payment.requestedAt().toEpochMilli());
+            } catch (RuntimeException e) {
+                // an outlier
+            }
+        }
+        long sealBefore = latest == Long.MIN_VALUE ? Long.MIN_VALUE : Math.floorDiv(latest - reorderWindowMillis, SEGMENT_MILLIS);
+        List<Payment> unsealed = new ArrayList<>();
+        for (int from = 0; from < payments.length; ) {
+            Long key = keyOf(payments[from].requestedAt());
+            if (key == null || key >= sealBefore) {
+                unsealed.add(payments[from++]);
+                continue;
+            }
+            int to = from + 1;
+            while (to < payments.length && key.equals(keyOf(payments[to].requestedAt()))) {
+                to++;
+            }
+            Segment segment = new Segment(key);
+            segment.publish(Arrays.copyOfRange(payments, from, to));
+            segments.put(key, segment);
+            size.addAndGet(to - from);
+            from = to;
+        }
+        sealedBefore.accumulateAndGet(sealBefore, Math::max);
+        unsealed.forEach(this::add);
+    }
+
+    private void sealUpTo(long key) {
+        long sealed = sealedBefore.get();
+        if (key > sealed && sealedBefore.compareAndSet(sealed, key)) {
+            segments.subMap(sealed, true, key, false)
+                    .values()
+                    .forEach(Segment::seal);
+        }
+    }
+
+    /**
+     * Hands every segment older than the one of {@code before} over to {@code compactor}, with its key and
+     * all of its payments, and drops it. {@link #compactedBefore()} only moves past the compacted
+     * segments once all of them were handed over, and they're only dropped after that, so a query that
+     * sees the same {@link #compactedBefore()} before and after it ran saw every one of them either
+     * handed over or still here.
+     */
+    void compactBefore(Instant before, BiConsumer<Long, Payment[]> compactor) {
+        long key = Math.floorDiv(before.toEpochMilli(), SEGMENT_MILLIS);
+        if (closedBefore.accumulateAndGet(key, Math::max) != key) {
+            return;
+        }
+        List<Map.Entry<Long, Segment>> compacted = new ArrayList<>(segments.headMap(key, false).entrySet());
+        long handedOver = 0;
+        for (Map.Entry<Long, Segment> entry : compacted) {
+            entry.getValue().close();
+            Payment[] payments = entry.getValue().stream(null, null).toArray(Payment[]::new);
+            compactor.accept(entry.getKey(), payments);
+            handedOver += payments.length;
+        }
+        compactedBefore = Instant.ofEpochMilli(key * SEGMENT_MILLIS);
+        for (Map.Entry<Long, Segment> entry : compacted) {
+            segments.remove(entry.getKey(), entry.getValue());
+        }
+        size.addAndGet(-handedOver);
+    }
+
+    /**
+     * @return the start of the oldest segment that may still be queried, or null if none was compacted yet
+     */
+    Instant compactedBefore() {
+        return compactedBefore;
+    }
+
+    long size() {
+        return size.get();
+    }
+
+    /**
+     * Payments {@link Payment#createdOn(Instant, Instant) created on} {@code [from, to]}, only evaluating
+     * the predicate on the segments at the edges of the range that weren't sealed yet.
+     */
+    Stream<Payment> stream(Instant from, Instant to) {
+        return Stream.concat(
+                range(from, to).values().stream().flatMap(segment -> segment.stream(from, to)),
+                outliers.stream().filter(Payment.createdOn(from, to)));
+    }
+
+    /**
+     * All the payments held right now, however the segments move on before the stream is consumed:
+     * sealed segments are shared as they are, and the logs still written to are cut at their current
+     * length. Meant to be called while nothing is added or compacted, and to take a time proportional to
+     * the number of segments rather than of payments.
+     */
+    Stream<Payment> snapshot() {
+        List<Stream<Payment>> parts = new ArrayList<>(segments.size() + 1);
+        for (Segment segment : segments.values()) {
+            parts.add(segment.stream(null, null));
+        }
+        parts.add(outliers.stream());
+        return parts.stream().flatMap(part -> part);
+    }
+
+    /**
+     * Summary of the payments {@link #stream(Instant, Instant) streamed} for {@code [from, to]}, taking the
+     * cached sums of the sealed segments within the range and reducing the others, on {@code pool} if
+     * one is given or on the calling thread otherwise.
+     */
+    PaymentsSummary summarize(Instant from, Instant to, ForkJoinPool pool) {
+        FixedPointSummary summary = new FixedPointSummary();
+        List<ForkJoinTask<FixedPointSummary>> reductions = new ArrayList<>();
+        for (Segment segment : range(from, to).values()) {
+            if (segment.addCachedSumsTo(summary, from, to) || segment.addRangeSumsTo(summary, from, to, aggregation)) {
+                continue;
+            }
+            if (pool == null) {
+                segment.stream(from, to).forEach(summary::add);
+            } else {
+                reductions.add(pool.submit(() -> FixedPointSummary.sum(segment.stream(from, to))));
+            }
+        }
+        outliers.stream().filter(Payment.createdOn(from, to)).forEach(summary::add);
+        for (ForkJoinTask<FixedPointSummary> reduction : reductions) {
+            summary.combine(reduction.join());
+        }
+        return summary.toPaymentsSummary();
+    }
+
+    private NavigableMap<Long, Segment> range(Instant from, Instant to) {
+        NavigableMap<Long, Segment> range = segments;
+        Long fromKey = keyOf(from);
+        Long toKey = keyOf(to);
+        if (fromKey != null) {
+            range = range.tailMap(fromKey, true);
+        }
+        if (toKey != null) {
+            range = range.headMap(toKey, true);
+        }
+        return range;
+    }
+
+    void clear() {
+        segments.clear();
+        outliers = new ChunkedAppendLog<>(LATE_CHUNK_SIZE);
+        size.set(0);
+        latestMillis.set(Long.MIN_VALUE);
+        sealedBefore.set(Long.MIN_VALUE);
+        closedBefore.set(Long.MIN_VALUE);
+        compactedBefore = null;
+    }
+
+    private static Long keyOf(Instant instant) {
+        if (instant == null) {
+            return null;
+        }
+        try {
+            return Math.floorDiv(instant.toEpochMilli(), SEGMENT_MILLIS);
+        } catch (ArithmeticException e) {
+            return null;
+        }
+    }
+
+    private static int lowerBound(Payment[] payments, Instant from) {
+        if (from == null) {
+            return 0;
+        }
+        int low = 0;
+        int high = payments.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (payments[middle].requestedAt().isBefore(from)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static int upperBound(Payment[] payments, Instant to) {
+        if (to == null) {
+            return payments.length;
+        }
+        int low = 0;
+        int high = payments.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (payments[middle].requestedAt().isAfter(to)) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    private static final class Segment {
+
+        private final Instant start;
+        private final Instant last;
+        private final AtomicInteger writers = new AtomicInteger();
+        private final ChunkedAppendLog<Payment> late = new ChunkedAppendLog<>(LATE_CHUNK_SIZE);
+        private volatile boolean sealed;
+        private volatile boolean closed;
+        private volatile ChunkedAppendLog<Payment> open = new ChunkedAppendLog<>(OPEN_CHUNK_SIZE);
+        private volatile Payment[] sorted;
+        private volatile FixedPointSummary sortedSums;
+        private volatile SegmentColumns sortedColumns;
+
+        private Segment(long key) {
+            this.start = Instant.ofEpochMilli(key * SEGMENT_MILLIS);
+            this.last = Instant.ofEpochMilli((key + 1) * SEGMENT_MILLIS).minusNanos(1);
+        }
+
+        private boolean add(Payment payment) {
+            writers.incrementAndGet();
+            try {
+                if (closed) {
+                    return false;
+                }
+                if (sealed) {
+                    late.append(payment);
+                } else {
+                    open.append(payment);
+                }
+                return true;
+            } finally {
+                writers.decrementAndGet();
+            }
+        }
+
+        // Writers that saw the segment open are waited for, so the sorted array holds every payment
+        // not sent to the late queue. The open queue is only dropped once the sorted array is published.
+        private void seal() {
+            sealed = true;
+            awaitWriters();
+            Payment[] payments = open.stream().toArray(Payment[]::new);
+            Arrays.sort(payments, BY_REQUESTED_AT);
+            publish(payments);
+        }
+
+        private void publish(Payment[] sortedPayments) {
+            sealed = true;
+            sortedSums = FixedPointSummary.sum(Arrays.stream(sortedPayments));
+            sortedColumns = SegmentColumns.of(sortedPayments, start);
+            sorted = sortedPayments;
+            open = null;
+        }
+
+        private void close() {
+            closed = true;
+            awaitWriters();
+        }
+
+        private void awaitWriters() {
+            while (writers.get() != 0) {
+                Thread.onSpinWait();
+            }
+        }
+
+        private boolean contains(Instant from, Instant to) {
+            return (from == null || !from.isAfter(start)) && (to == null || !to.isBefore(last));
+        }
+
+        /**
+         * @return false if the segment isn't sealed yet or isn't within the range, so it must be reduced
+         */
+        private boolean addCachedSumsTo(FixedPointSummary summary, Instant from, Instant to) {
+            if (sorted == null || !contains(from, to)) {
+                return false;
+            }
+            summary.combine(sortedSums);
+            late.stream().forEach(summary::add);
+            return true;
+        }
+
+        /**
+         * @return false if the segment isn't sealed yet or its payments couldn't be kept as columns
+         */
+        private boolean addRangeSumsTo(FixedPointSummary summary, Instant from, Instant to, RangeAggregation aggregation) {
+            SegmentColumns columns = sorted == null ? null : sortedColumns;
+            if (columns == null) {
+                return false;
+            }
+            aggregation.sum(columns,
+                    from == null ? Long.MIN_VALUE : SegmentColumns.offsetOf(start, from),
+                    to == null ? Long.MAX_VALUE : SegmentColumns.offsetOf(start, to),
+                    summary);
+            late.stream().filter(Payment.createdOn(from, to)).forEach(summary::add);
+            return true;
+        }
+
+        private Stream<Payment> stream(Instant from, Instant to) {
+            boolean contained = contains(from, to);
+            Stream<Payment> lateStream = contained
+                    ? late.stream()
+                    : late.stream().filter(Payment.createdOn(from, to));
+
+            Payment[] payments = sorted;
+            if (payments == null) {
+                ChunkedAppendLog<Payment> buffer = open;
+                if (buffer != null) {
+                    Stream<Payment> openStream = contained
+                            ? buffer.stream()
+                            : buffer.stream().filter(Payment.createdOn(from, to));
+                    return Stream.concat(openStream, lateStream);
+                }
+                payments = sorted;
+            }
+            if (contained) {
+                return Stream.concat(Arrays.stream(payments), lateStream);
+            }
+            int first = lowerBound(payments, from);
+            int end = Math.max(first, upperBound(payments, to));
+            return Stream.concat(Arrays.stream(payments, first, end), lateStream);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package org.acme.infrastructure;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+import org.acme.domain.RemotePaymentName;
+
+/**
+ * {@link RangeAggregation} comparing the offsets with the range and the tags with the processor as
+ * lane masks, and summing the units under them lane by lane. Only loaded through
+ * {@link RangeAggregation#preferred()}.
+ */
+final class VectorRangeAggregation implements RangeAggregation {
+
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+    private static final long FALLBACK = RemotePaymentName.FALLBACK.ordinal();
+
+    static {
+        // the kernel splits the lanes between the two processors
+        if (RemotePaymentName.values().length != 2) {
+            throw new ExceptionInInitializerError("Expected two payment processors");
+        }
+    }
+
+    @Override
+    public void sum(SegmentColumns columns, long fromOffset, long toOffset, FixedPointSummary summary) {
+        int size = columns.size();
+        int bound = SPECIES.loopBound(size);
+        long defaultCount = 0;
+        long fallbackCount = 0;
+        // kept in locals rather than arrays, so they stay in vector registers
+        LongVector defaultUnits = LongVector.zero(SPECIES);
+        LongVector fallbackUnits = LongVector.zero(SPECIES);
+        LongVector defaultScales = LongVector.zero(SPECIES);
+        LongVector fallbackScales = LongVector.zero(SPECIES);
+
+        for (int i = 0; i < bound; i += SPECIES.length()) {
+            LongVector offsets = LongVector.fromArray(SPECIES, columns.offsets, i);
+            VectorMask<Long> inRange = offsets.compare(VectorOperators.GE, fromOffset)
+                    .and(offsets.compare(VectorOperators.LE, toOffset));
+            if (!inRange.anyTrue()) {
+                continue;
+            }
+            LongVector tags = LongVector.fromArray(SPECIES, columns.tags, i);
+            LongVector amounts = LongVector.fromArray(SPECIES, columns.units, i);
+            LongVector scaleBits = tags.lanewise(VectorOperators.LSHR, SegmentColumns.SCALE_BIT_SHIFT);
+            VectorMask<Long> fallback = tags.and(SegmentColumns.PROCESSOR_MASK).compare(VectorOperators.EQ, FALLBACK);
+            VectorMask<Long> inRangeFallback = inRange.and(fallback);
+            VectorMask<Long> inRangeDefault = inRange.andNot(fallback);
+            defaultCount += inRangeDefault.trueCount();
+            fallbackCount += inRangeFallback.trueCount();
+            defaultUnits = defaultUnits.add(amounts, inRangeDefault);
+            fallbackUnits = fallbackUnits.add(amounts, inRangeFallback);
+            defaultScales = defaultScales.lanewise(VectorOperators.OR, scaleBits, inRangeDefault);
+            fallbackScales = fallbackScales.lanewise(VectorOperators.OR, scaleBits, inRangeFallback);
+        }
+
+        summary.add(RemotePaymentName.DEFAULT, defaultCount,
+                defaultUnits.reduceLanes(VectorOperators.ADD), (int) defaultScales.reduceLanes(VectorOperators.OR));
+        summary.add(RemotePaymentName.FALLBACK, fallbackCount,
+                fallbackUnits.reduceLanes(VectorOperators.ADD), (int) fallbackScales.reduceLanes(VectorOperators.OR));
+        ScalarRangeAggregation.sum(columns, bound, size, fromOffset, toOffset, summary);
+    }
+
+    @Override
+    public String toString() {
+        return "vector (" + SPECIES + ")";
+    }
+}
@@ -0,0 +1,123 @@
+package org.acme.infrastructure;
+
+import io.quarkus.arc.properties.IfBuildProperty;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.PoolOptions;
+import io.vertx.core.http.RequestOptions;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.acme.domain.RemotePaymentClient;
+import org.acme.domain.RemotePaymentName;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * {@link RemotePaymentClient} over a Vert.x HTTP client per processor, each with a pool of its own
+ * size of kept-alive connections, optionally pipelining requests on them.
+ * <p>
+ * Calls don't hold the worker that made them: they complete on the event loop once the processor
+ * answered, with its response body discarded unread. So how many payments are in flight is up to the
+ * concurrency limit, not to how many workers or sockets there are.
+ */
+@ApplicationScoped
+@IfBuildProperty(name = "processors.client", stringValue = "vertx")
+public class VertxRemotePaymentClient implements RemotePaymentClient {
+
+    private static final String PAYMENTS_PATH = "/payments";
+
+    private final Processor defaultProcessor;
+    private final Processor fallbackProcessor;
+
+    @Inject
+    public VertxRemotePaymentClient(
+            Vertx vertx,
+            @ConfigProperty(name = "default-payment-processor.url")
+            URI defaultUrl,
+            @ConfigProperty(name = "default-payment-processor.pool-size", defaultValue = "20")
+            int defaultPoolSize,
+            @ConfigProperty(name = "fallback-payment-processor.url")
+            URI fallbackUrl,
+            @ConfigProperty(name = "fallback-payment-processor.pool-size", defaultValue = "20")
+            int fallbackPoolSize,
+            @ConfigProperty(name = "processors.client.keep-alive-timeout", defaultValue = "60s")
+            Duration keepAliveTimeout,
+            @ConfigProperty(name = "processors.client.pipelining", defaultValue = "false")
+            boolean pipelining,
+            @ConfigProperty(name = "processors.client.pipelining-limit", defaultValue = "10")
+            int pipeliningLimit,
+            @ConfigProperty(name = "processors.client.connect-timeout", defaultValue = "1s")
+            Duration connectTimeout,
+            @ConfigProperty(name = "processors.client.idle-timeout", defaultValue = "5s")
+            Duration idleTimeout) {
+        HttpClientOptions options = new HttpClientOptions()
+                .setKeepAlive(true)
+                .setKeepAliveTimeout(Math.toIntExact(keepAliveTimeout.toSeconds()))
+                .setPipelining(pipelining)
+                .setPipeliningLimit(pipeliningLimit)
+                .setConnectTimeout(Math.toIntExact(connectTimeout.toMillis()));
+        this.defaultProcessor = new Processor(vertx, options, defaultUrl, defaultPoolSize, idleTimeout);
+        this.fallbackProcessor = new Processor(vertx, options, fallbackUrl, fallbackPoolSize, idleTimeout);
+    }
+
+    @Override
+    public CompletionStage<Integer> post(RemotePaymentName processor, byte[] body) {
+        try {
+            return (processor == RemotePaymentName.DEFAULT ? defaultProcessor : fallbackProcessor).post(body);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        defaultProcessor.client.close();
+        fallbackProcessor.client.close();
+    }
+
+    private static final class Processor {
+
+        private final HttpClient client;
+        private final String host;
+        private final int port;
+        private final String path;
+        private final long idleTimeoutMillis;
+
+        private Processor(Vertx vertx, HttpClientOptions options, URI url, int poolSize, Duration idleTimeout) {
+            boolean ssl = "https".equalsIgnoreCase(url.getScheme());
+            this.client = vertx.createHttpClient(new HttpClientOptions(options).setSsl(ssl),
+                    new PoolOptions().setHttp1MaxSize(poolSize));
+            this.host = url.getHost();
+            this.port = url.getPort() != -1 ? url.getPort() : ssl ? 443 : 80;
+            String basePath = url.getPath() == null ? "" : url.getPath();
+            this.path = (basePath.endsWith("/") ? basePath.substring(0, basePath.length() - 1) : basePath) + PAYMENTS_PATH;
+            this.idleTimeoutMillis = idleTimeout.toMillis();
+        }
+
+        private CompletionStage<Integer> post(byte[] body) {
+            RequestOptions request = new RequestOptions()
+                    .setMethod(HttpMethod.POST)
+                    .setHost(host)
+                    .setPort(port)
+                    .setURI(path)
+                    .setIdleTimeout(idleTimeoutMillis)
+                    .putHeader(HttpHeaders.CONTENT_TYPE, "application/json");
+            return client.request(request)
+                    .compose(call -> call.send(Buffer.buffer(body)))
+                    // waits for the end of the response without keeping its body
+                    .compose(response -> response.end().map(ignored -> response.statusCode()))
+                    .toCompletionStage();
+        }
+
+    }
+
+}
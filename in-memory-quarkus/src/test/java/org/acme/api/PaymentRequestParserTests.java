@@ -0,0 +1,73 @@
+package org.acme.api;
+
+import org.acme.domain.NewPaymentRequest;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("PaymentRequestParser Tests")
+class PaymentRequestParserTests {
+
+    private static final String ID = "4a7901b8-7d26-4d9d-aa19-4dc1c7cf60b3";
+
+    @Test
+    @DisplayName("Should read the correlation id and amount without materializing them")
+    void shouldReadTheCorrelationIdAndAmountWithoutMaterializingThem() {
+        NewPaymentRequest request = parse("{\"correlationId\":\"" + ID + "\",\"amount\":19.90}");
+
+        assertThat(request.isCompact()).isTrue();
+        assertThat(request.amountCents()).isEqualTo(1990);
+        assertThat(request.correlationId()).isEqualTo(ID);
+        assertThat(request.amount()).isEqualTo(new BigDecimal("19.90"));
+        assertThat(request.attempts()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should read the fields in any order and around any whitespace")
+    void shouldReadTheFieldsInAnyOrderAndAroundAnyWhitespace() {
+        NewPaymentRequest request = parse(" {\n  \"amount\" : 0.05 ,\r\n\t\"correlationId\": \"" + ID + "\"\n} ");
+
+        assertThat(request).isEqualTo(new NewPaymentRequest(ID, new BigDecimal("0.05")));
+    }
+
+    @Test
+    @DisplayName("Should leave amounts of another scale to the generic binding")
+    void shouldLeaveAmountsOfAnotherScaleToTheGenericBinding() {
+        assertThat(parse("{\"correlationId\":\"" + ID + "\",\"amount\":19}")).isNull();
+        assertThat(parse("{\"correlationId\":\"" + ID + "\",\"amount\":19.9}")).isNull();
+        assertThat(parse("{\"correlationId\":\"" + ID + "\",\"amount\":19.901}")).isNull();
+        assertThat(parse("{\"correlationId\":\"" + ID + "\",\"amount\":1.90e1}")).isNull();
+        assertThat(parse("{\"correlationId\":\"" + ID + "\",\"amount\":-19.90}")).isNull();
+        assertThat(parse("{\"correlationId\":\"" + ID + "\",\"amount\":12345678901234567.00}")).isNull();
+    }
+
+    @Test
+    @DisplayName("Should leave ids that wouldn't read back the same to the generic binding")
+    void shouldLeaveIdsThatWouldNotReadBackTheSameToTheGenericBinding() {
+        assertThat(parse("{\"correlationId\":\"" + ID.toUpperCase() + "\",\"amount\":19.90}")).isNull();
+        assertThat(parse("{\"correlationId\":\"" + ID.replace("-", "") + "\",\"amount\":19.90}")).isNull();
+        assertThat(parse("{\"correlationId\":\"not-a-uuid\",\"amount\":19.90}")).isNull();
+    }
+
+    @Test
+    @DisplayName("Should leave anything but exactly both fields to the generic binding")
+    void shouldLeaveAnythingButExactlyBothFieldsToTheGenericBinding() {
+        assertThat(parse("{\"correlationId\":\"" + ID + "\"}")).isNull();
+        assertThat(parse("{\"correlationId\":\"" + ID + "\",\"amount\":19.90,\"extra\":1}")).isNull();
+        assertThat(parse("{\"correlationId\":\"" + ID + "\",\"amount\":19.90,\"amount\":1.00}")).isNull();
+        assertThat(parse("{\"correlation\\u0049d\":\"" + ID + "\",\"amount\":19.90}")).isNull();
+        assertThat(parse("{\"correlationId\":\"" + ID + "\",\"amount\":19.90")).isNull();
+        assertThat(parse("{\"correlationId\":\"" + ID + "\",\"amount\":19.90}}")).isNull();
+        assertThat(parse("")).isNull();
+    }
+
+    private static NewPaymentRequest parse(String body) {
+        byte[] bytes = (body + "trailing bytes of a reused buffer").getBytes(StandardCharsets.UTF_8);
+        return PaymentRequestParser.parse(bytes, body.getBytes(StandardCharsets.UTF_8).length);
+    }
+
+}
@@ -0,0 +1,55 @@
+package org.acme.api;
+
+import jakarta.json.bind.JsonbBuilder;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.core.MediaType;
+import org.acme.domain.NewPaymentRequest;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("PaymentRequestReader Tests")
+class PaymentRequestReaderTests {
+
+    private static final String ID = "4a7901b8-7d26-4d9d-aa19-4dc1c7cf60b3";
+
+    private final PaymentRequestReader reader = new PaymentRequestReader(JsonbBuilder.create());
+
+    @Test
+    @DisplayName("Should bind the bodies the parser leaves to the generic binding")
+    void shouldBindTheBodiesTheParserLeavesToTheGenericBinding() throws IOException {
+        assertThat(read("{\"correlationId\":\"" + ID + "\",\"amount\":19.90}").isCompact()).isTrue();
+        assertThat(read("{\"correlationId\":\"" + ID + "\",\"amount\":19}"))
+                .isEqualTo(new NewPaymentRequest(ID, new BigDecimal("19")));
+    }
+
+    @Test
+    @DisplayName("Should reject malformed bodies as bad requests")
+    void shouldRejectMalformedBodiesAsBadRequests() {
+        assertThatThrownBy(() -> read("{\"correlationId\":")).isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> read("not json")).isInstanceOf(BadRequestException.class);
+    }
+
+    @Test
+    @DisplayName("Should reject empty bodies and bodies without a correlation id or an amount as bad requests")
+    void shouldRejectEmptyBodiesAndBodiesWithoutACorrelationIdOrAnAmountAsBadRequests() {
+        assertThatThrownBy(() -> read("")).isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> read("null")).isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> read("{}")).isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> read("{\"correlationId\":\"" + ID + "\"}")).isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> read("{\"amount\":19.90}")).isInstanceOf(BadRequestException.class);
+    }
+
+    private NewPaymentRequest read(String body) throws IOException {
+        return reader.readFrom(NewPaymentRequest.class, NewPaymentRequest.class, null, MediaType.APPLICATION_JSON_TYPE,
+                null, new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+    }
+
+}
@@ -0,0 +1,94 @@
+package org.acme.api;
+
+import org.acme.domain.InternalPaymentsManagement;
+import org.acme.domain.PaymentMiddleware;
+import org.acme.domain.PaymentProcessor;
+import org.acme.domain.PaymentStats;
+import org.acme.domain.PaymentWorker;
+import org.acme.domain.PaymentsSummary;
+import org.acme.domain.PendingPayment;
+import org.acme.domain.ProcessorsHealth;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("PendingPaymentsResource Tests")
+class PendingPaymentsResourceTests {
+
+    private final List<PendingPayment> handedOn = new CopyOnWriteArrayList<>();
+    private final PaymentWorker worker = worker();
+    private final PendingPaymentsResource resource = new PendingPaymentsResource(worker);
+
+    @Test
+    @DisplayName("Should queue the payments handed off by the peer, past admission control")
+    void shouldQueueThePaymentsHandedOffByThePeerPastAdmissionControl() {
+        List<PendingPayment> pending = List.of(
+                new PendingPayment("a", new BigDecimal("19.90")),
+                new PendingPayment("b", new BigDecimal("0.05")),
+                new PendingPayment("c", new BigDecimal("1000.00")));
+
+        assertThat(resource.enqueue(pending)).isEqualTo(3);
+
+        // none were sent, so stopping hands them all on again
+        worker.stop();
+        assertThat(handedOn).containsExactlyElementsOf(pending);
+    }
+
+    @Test
+    @DisplayName("Should take none once shutting down")
+    void shouldTakeNoneOnceShuttingDown() {
+        worker.stop();
+
+        assertThat(resource.enqueue(List.of(new PendingPayment("late", new BigDecimal("19.90"))))).isZero();
+        assertThat(handedOn).isEmpty();
+    }
+
+    // never started, so neither storing nor sending payments
+    private PaymentWorker worker() {
+        PaymentStats stats = new PaymentStats();
+        PaymentProcessor processor = new PaymentProcessor((name, body) -> CompletableFuture.completedFuture(200), null, stats,
+                20, 0.5, Duration.ofSeconds(1), Duration.ofSeconds(1));
+        return new PaymentWorker(null, processor, stats, new PaymentMiddleware(new Peer(), stats),
+                16, 16, 4, 1, 1, 1,
+                Duration.ofMillis(1), Duration.ofMillis(10), 0,
+                1, 4, 8, 2.0, 0.9,
+                Duration.ofSeconds(1), Duration.ofMillis(10), 100);
+    }
+
+    // the other instance, taking every payment handed on to it
+    private final class Peer implements InternalPaymentsManagement {
+
+        @Override
+        public int enqueuePendingPayments(List<PendingPayment> payments) {
+            handedOn.addAll(payments);
+            return payments.size();
+        }
+
+        @Override
+        public PaymentsSummary getSummary(String fromStr, String toStr) {
+            return PaymentsSummary.ZERO;
+        }
+
+        @Override
+        public void purgeInternalPayments() {
+        }
+
+        @Override
+        public ProcessorsHealth getProcessorsHealth() {
+            return ProcessorsHealth.UNKNOWN;
+        }
+
+        @Override
+        public String healthReadyCheck() {
+            return "UP";
+        }
+    }
+
+}
@@ -0,0 +1,110 @@
+package org.acme.domain;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("AdmissionControl Tests")
+class AdmissionControlTests {
+
+    private final AtomicLong nanoTime = new AtomicLong();
+    private AdmissionControl admissionControl;
+
+    @BeforeEach
+    void setUp() {
+        admissionControl = new AdmissionControl(Duration.ofSeconds(1), 10, nanoTime::get);
+    }
+
+    @Test
+    @DisplayName("Should always admit behind a queue shallower than the minimum depth")
+    void shouldAlwaysAdmitBehindAQueueShallowerThanTheMinimumDepth() {
+        assertThat(admissionControl.retryAfter(10)).isEqualTo(Duration.ZERO);
+    }
+
+    @Test
+    @DisplayName("Should admit while the estimated wait fits in the budget")
+    void shouldAdmitWhileTheEstimatedWaitFitsInTheBudget() {
+        startBacklog();
+        drain(100, Duration.ofSeconds(1));
+
+        assertThat(admissionControl.drainRate()).isEqualTo(100.0);
+        assertThat(admissionControl.retryAfter(100)).isEqualTo(Duration.ZERO);
+    }
+
+    @Test
+    @DisplayName("Should ask to come back once the queue drained back into the budget")
+    void shouldAskToComeBackOnceTheQueueDrainedBackIntoTheBudget() {
+        startBacklog();
+        drain(100, Duration.ofSeconds(1));
+
+        assertThat(admissionControl.retryAfter(350)).isEqualTo(Duration.ofMillis(2_500));
+    }
+
+    @Test
+    @DisplayName("Should shed everything past the minimum depth while nothing drains")
+    void shouldShedEverythingPastTheMinimumDepthWhileNothingDrains() {
+        startBacklog();
+        drain(0, Duration.ofSeconds(1));
+
+        assertThat(admissionControl.retryAfter(11)).isEqualTo(Duration.ofSeconds(1));
+    }
+
+    @Test
+    @DisplayName("Should admit a first burst before any backlog was measured")
+    void shouldAdmitAFirstBurstBeforeAnyBacklogWasMeasured() {
+        nanoTime.addAndGet(Duration.ofMinutes(1).toNanos());
+
+        assertThat(admissionControl.retryAfter(1_000)).isEqualTo(Duration.ZERO);
+    }
+
+    @Test
+    @DisplayName("Should keep the rate measured under a backlog through a quiet period")
+    void shouldKeepTheRateMeasuredUnderABacklogThroughAQuietPeriod() {
+        startBacklog();
+        drain(100, Duration.ofSeconds(1));
+        assertThat(admissionControl.drainRate()).isEqualTo(100.0);
+        // a trickle the workers keep up with, sampled on each arrival
+        for (int i = 0; i < 60; i++) {
+            admissionControl.recordDrained(1, true);
+            nanoTime.addAndGet(Duration.ofSeconds(1).toNanos());
+            assertThat(admissionControl.retryAfter(0)).isEqualTo(Duration.ZERO);
+        }
+
+        assertThat(admissionControl.drainRate()).isEqualTo(100.0);
+        assertThat(admissionControl.retryAfter(150)).isEqualTo(Duration.ofMillis(500));
+    }
+
+    @Test
+    @DisplayName("Should never ask to come back later than the maximum Retry-After")
+    void shouldNeverAskToComeBackLaterThanTheMaximumRetryAfter() {
+        startBacklog();
+        drain(1, Duration.ofSeconds(1));
+
+        assertThat(admissionControl.retryAfter(1_000_000)).isEqualTo(AdmissionControl.MAX_RETRY_AFTER);
+    }
+
+    @Test
+    @DisplayName("Should round the Retry-After up to whole seconds, one at least")
+    void shouldRoundTheRetryAfterUpToWholeSecondsOneAtLeast() {
+        assertThat(Admission.rejected(Duration.ofMillis(2_500)).retryAfterSeconds()).isEqualTo(3L);
+        assertThat(Admission.rejected(Duration.ofMillis(10)).retryAfterSeconds()).isEqualTo(1L);
+        assertThat(Admission.rejected(Duration.ofSeconds(2)).retryAfterSeconds()).isEqualTo(2L);
+    }
+
+    // the workers start out caught up, the interval they do so in isn't sampled
+    private void startBacklog() {
+        nanoTime.addAndGet(Duration.ofMillis(100).toNanos());
+        assertThat(admissionControl.retryAfter(0)).isEqualTo(Duration.ZERO);
+    }
+
+    private void drain(int count, Duration over) {
+        admissionControl.recordDrained(count, false);
+        nanoTime.addAndGet(over.toNanos());
+    }
+
+}
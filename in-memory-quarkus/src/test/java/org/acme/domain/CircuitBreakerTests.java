@@ -0,0 +1,150 @@
+package org.acme.domain;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("CircuitBreaker Tests")
+class CircuitBreakerTests {
+
+    private final AtomicLong nanoTime = new AtomicLong();
+    private CircuitBreaker circuitBreaker;
+
+    @BeforeEach
+    void setUp() {
+        circuitBreaker = new CircuitBreaker(RemotePaymentName.DEFAULT, 4, 0.5,
+                Duration.ofSeconds(1), Duration.ofMillis(100), nanoTime::get);
+    }
+
+    @Test
+    @DisplayName("Should stay closed until the window is full")
+    void shouldStayClosedUntilTheWindowIsFull() {
+        fail();
+        fail();
+        fail();
+
+        assertThat(circuitBreaker.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(circuitBreaker.tryAcquire()).isNotEqualTo(CircuitBreaker.REFUSED);
+    }
+
+    @Test
+    @DisplayName("Should open once failed and slow calls reach the failure ratio")
+    void shouldOpenOnceFailedAndSlowCallsReachTheFailureRatio() {
+        succeed(Duration.ofMillis(10).toNanos());
+        succeed(Duration.ofMillis(10).toNanos());
+        fail();
+        succeed(Duration.ofMillis(500).toNanos());
+
+        assertThat(circuitBreaker.state()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(circuitBreaker.tryAcquire()).isEqualTo(CircuitBreaker.REFUSED);
+    }
+
+    @Test
+    @DisplayName("Should only count the calls still in the window")
+    void shouldOnlyCountTheCallsStillInTheWindow() {
+        fail();
+        for (int i = 0; i < 6; i++) {
+            succeed(0);
+        }
+        fail();
+
+        assertThat(circuitBreaker.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    @DisplayName("Should let a single probe through once the open duration elapsed")
+    void shouldLetASingleProbeThroughOnceTheOpenDurationElapsed() {
+        trip();
+
+        nanoTime.addAndGet(Duration.ofSeconds(1).toNanos());
+
+        assertThat(circuitBreaker.tryAcquire()).isNotEqualTo(CircuitBreaker.REFUSED);
+        assertThat(circuitBreaker.state()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        assertThat(circuitBreaker.tryAcquire()).isEqualTo(CircuitBreaker.REFUSED);
+    }
+
+    @Test
+    @DisplayName("Should close on a successful probe and reopen on a failed one")
+    void shouldCloseOnASuccessfulProbeAndReopenOnAFailedOne() {
+        trip();
+        nanoTime.addAndGet(Duration.ofSeconds(1).toNanos());
+        circuitBreaker.onFailure(circuitBreaker.tryAcquire());
+
+        assertThat(circuitBreaker.state()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(circuitBreaker.tryAcquire()).isEqualTo(CircuitBreaker.REFUSED);
+
+        nanoTime.addAndGet(Duration.ofSeconds(1).toNanos());
+        circuitBreaker.onSuccess(circuitBreaker.tryAcquire(), 0);
+
+        assertThat(circuitBreaker.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+        fail();
+        fail();
+        assertThat(circuitBreaker.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    @DisplayName("Should only let the probe decide whether to close")
+    void shouldOnlyLetTheProbeDecideWhetherToClose() {
+        long startedClosed = circuitBreaker.tryAcquire();
+        trip();
+        nanoTime.addAndGet(Duration.ofSeconds(1).toNanos());
+        long probe = circuitBreaker.tryAcquire();
+
+        circuitBreaker.onSuccess(startedClosed, 0);
+        assertThat(circuitBreaker.state()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        circuitBreaker.onFailure(startedClosed);
+        assertThat(circuitBreaker.state()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+
+        circuitBreaker.onSuccess(probe, 0);
+        assertThat(circuitBreaker.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+        for (int i = 0; i < 4; i++) {
+            circuitBreaker.onFailure(startedClosed);
+        }
+        assertThat(circuitBreaker.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    @DisplayName("Should reopen once the probe is out for longer than a slow call")
+    void shouldReopenOnceTheProbeIsOutForLongerThanASlowCall() {
+        trip();
+        nanoTime.addAndGet(Duration.ofSeconds(1).toNanos());
+        long probe = circuitBreaker.tryAcquire();
+
+        nanoTime.addAndGet(Duration.ofMillis(100).toNanos());
+        assertThat(circuitBreaker.tryAcquire()).isEqualTo(CircuitBreaker.REFUSED);
+        assertThat(circuitBreaker.state()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+
+        nanoTime.incrementAndGet();
+        assertThat(circuitBreaker.tryAcquire()).isEqualTo(CircuitBreaker.REFUSED);
+        assertThat(circuitBreaker.state()).isEqualTo(CircuitBreaker.State.OPEN);
+
+        nanoTime.addAndGet(Duration.ofSeconds(1).toNanos());
+        long nextProbe = circuitBreaker.tryAcquire();
+        assertThat(nextProbe).isNotEqualTo(CircuitBreaker.REFUSED);
+        circuitBreaker.onSuccess(probe, 0);
+        assertThat(circuitBreaker.state()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        circuitBreaker.onSuccess(nextProbe, 0);
+        assertThat(circuitBreaker.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    private void fail() {
+        circuitBreaker.onFailure(circuitBreaker.tryAcquire());
+    }
+
+    private void succeed(long elapsedNanos) {
+        circuitBreaker.onSuccess(circuitBreaker.tryAcquire(), elapsedNanos);
+    }
+
+    private void trip() {
+        for (int i = 0; i < 4; i++) {
+            fail();
+        }
+        assertThat(circuitBreaker.state()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+}
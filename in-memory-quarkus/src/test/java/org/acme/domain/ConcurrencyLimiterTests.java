@@ -0,0 +1,112 @@
+package org.acme.domain;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("ConcurrencyLimiter Tests")
+class ConcurrencyLimiterTests {
+
+    private static final long RTT = Duration.ofMillis(10).toNanos();
+
+    @Test
+    @DisplayName("Should grow the limit while calls succeed in time and use it")
+    void shouldGrowTheLimitWhileCallsSucceedInTimeAndUseIt() throws InterruptedException {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 2, 10, 2.0, 0.5);
+
+        for (int i = 0; i < 20; i++) {
+            limiter.acquire();
+            limiter.acquire();
+            limiter.release(RTT, true);
+            limiter.release(RTT, true);
+        }
+
+        assertThat(limiter.stats().limit()).isGreaterThan(2);
+        assertThat(limiter.stats().inFlight()).isZero();
+        assertThat(limiter.stats().minRttMicros()).isEqualTo(10_000L);
+    }
+
+    @Test
+    @DisplayName("Should cut the limit on failed or slow calls down to the minimum")
+    void shouldCutTheLimitOnFailedOrSlowCallsDownToTheMinimum() throws InterruptedException {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 8, 10, 2.0, 0.5);
+        limiter.acquire();
+        limiter.release(RTT, true);
+
+        limiter.acquire();
+        limiter.release(RTT, false);
+        assertThat(limiter.stats().limit()).isEqualTo(4);
+
+        limiter.acquire();
+        limiter.release(RTT * 3, true);
+        assertThat(limiter.stats().limit()).isEqualTo(2);
+
+        for (int i = 0; i < 5; i++) {
+            limiter.acquire();
+            limiter.release(RTT, false);
+        }
+        assertThat(limiter.stats().limit()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should leave the limit and round trips alone for calls that were never sent")
+    void shouldLeaveTheLimitAndRoundTripsAloneForCallsThatWereNeverSent() throws InterruptedException {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 4, 10, 2.0, 0.5);
+        for (int i = 0; i < 20; i++) {
+            limiter.acquire();
+            limiter.acquire();
+            limiter.acquire();
+            limiter.release(RTT, true);
+            limiter.release(RTT, true);
+            limiter.release(RTT, true);
+        }
+        ConcurrencyLimiter.Stats warmed = limiter.stats();
+
+        for (int i = 0; i < 20; i++) {
+            limiter.acquire();
+            limiter.release();
+        }
+
+        assertThat(limiter.stats()).isEqualTo(warmed);
+        assertThat(warmed.limit()).isGreaterThan(4);
+        assertThat(warmed.minRttMicros()).isEqualTo(10_000L);
+    }
+
+    @Test
+    @DisplayName("Should hold callers off while the limit is reached")
+    void shouldHoldCallersOffWhileTheLimitIsReached() throws InterruptedException {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1, 1, 2.0, 0.5);
+        limiter.acquire();
+        CountDownLatch acquired = new CountDownLatch(1);
+        Thread.startVirtualThread(() -> {
+            try {
+                limiter.acquire();
+                acquired.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        assertThat(acquired.await(100, TimeUnit.MILLISECONDS)).isFalse();
+        limiter.release(RTT, true);
+        assertThat(acquired.await(1, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should wait for the calls in flight until the timeout")
+    void shouldWaitForTheCallsInFlightUntilTheTimeout() throws InterruptedException {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 2, 2, 2.0, 0.5);
+        assertThat(limiter.awaitIdle(0)).isTrue();
+        limiter.acquire();
+
+        assertThat(limiter.awaitIdle(TimeUnit.MILLISECONDS.toNanos(50))).isFalse();
+        Thread.startVirtualThread(() -> limiter.release(RTT, true));
+        assertThat(limiter.awaitIdle(TimeUnit.SECONDS.toNanos(1))).isTrue();
+    }
+
+}
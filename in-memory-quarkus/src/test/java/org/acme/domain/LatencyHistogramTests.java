@@ -0,0 +1,68 @@
+package org.acme.domain;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("LatencyHistogram Tests")
+class LatencyHistogramTests {
+
+    @Test
+    @DisplayName("Should bucket every value into one no wider than about 3% of it")
+    void shouldBucketEveryValueIntoOneNoWiderThanAbout3PercentOfIt() {
+        int previous = -1;
+        for (long value = 0; value < 1L << 20; value++) {
+            int index = LatencyHistogram.index(value);
+            assertThat(index).isBetween(previous, previous + 1);
+            assertThat(LatencyHistogram.highestValue(index)).isBetween(value, value + value / 32);
+            previous = index;
+        }
+        for (long value = 1L << 20; value < 1L << 42; value = value * 3 / 2 + 1) {
+            int index = LatencyHistogram.index(value);
+            assertThat(LatencyHistogram.highestValue(index)).isBetween(value, value + value / 32);
+        }
+    }
+
+    @Test
+    @DisplayName("Should summarize the recorded latencies in microseconds")
+    void shouldSummarizeTheRecordedLatenciesInMicroseconds() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int millis = 1; millis <= 1_000; millis++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+
+        LatencyHistogram.Summary summary = histogram.summary();
+
+        assertThat(summary.count()).isEqualTo(1_000);
+        assertThat(summary.meanMicros()).isEqualTo(500_500);
+        assertThat(summary.p50Micros()).isBetween(500_000L, 500_000L * 33 / 32);
+        assertThat(summary.p90Micros()).isBetween(900_000L, 900_000L * 33 / 32);
+        assertThat(summary.p99Micros()).isBetween(990_000L, 1_000_000L);
+        assertThat(summary.p999Micros()).isBetween(999_000L, 1_000_000L);
+        assertThat(summary.maxMicros()).isEqualTo(1_000_000);
+    }
+
+    @Test
+    @DisplayName("Should count values beyond the range in the last bucket and negative ones as zero")
+    void shouldCountValuesBeyondTheRangeInTheLastBucketAndNegativeOnesAsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+
+        LatencyHistogram.Summary summary = histogram.summary();
+
+        assertThat(summary.count()).isEqualTo(2);
+        assertThat(summary.p50Micros()).isZero();
+        assertThat(summary.maxMicros()).isEqualTo(TimeUnit.NANOSECONDS.toMicros(Long.MAX_VALUE));
+    }
+
+    @Test
+    @DisplayName("Should summarize an empty histogram as zeros")
+    void shouldSummarizeAnEmptyHistogramAsZeros() {
+        assertThat(new LatencyHistogram().summary()).isEqualTo(LatencyHistogram.Summary.EMPTY);
+    }
+
+}
@@ -0,0 +1,112 @@
+package org.acme.domain;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("PaymentLanes Tests")
+class PaymentLanesTests {
+
+    @Test
+    @DisplayName("Should take fresh payments and retries by their weights")
+    void shouldTakeFreshPaymentsAndRetriesByTheirWeights() throws InterruptedException {
+        PaymentLanes lanes = new PaymentLanes(16, 16, 2, 1);
+        for (int i = 0; i < 4; i++) {
+            lanes.offerFresh(request("fresh-" + i));
+            lanes.offerRetry(request("retry-" + i));
+        }
+
+        assertThat(drain(lanes, 8)).containsExactly(
+                "fresh-0", "fresh-1", "retry-0", "fresh-2", "fresh-3", "retry-1", "retry-2", "retry-3");
+    }
+
+    @Test
+    @DisplayName("Should only take retries when there's nothing fresh with a retry weight of zero")
+    void shouldOnlyTakeRetriesWhenThereIsNothingFreshWithARetryWeightOfZero() throws InterruptedException {
+        PaymentLanes lanes = new PaymentLanes(16, 16, 1, 0);
+        lanes.offerRetry(request("retry-0"));
+        lanes.offerFresh(request("fresh-0"));
+        lanes.offerFresh(request("fresh-1"));
+
+        assertThat(drain(lanes, 3)).containsExactly("fresh-0", "fresh-1", "retry-0");
+    }
+
+    @Test
+    @DisplayName("Should limit the depth of each lane on its own")
+    void shouldLimitTheDepthOfEachLaneOnItsOwn() {
+        PaymentLanes lanes = new PaymentLanes(2, 4, 4, 1);
+
+        for (int i = 0; i < 4; i++) {
+            assertThat(lanes.offerRetry(request("retry-" + i))).isTrue();
+        }
+        assertThat(lanes.offerRetry(request("retry-4"))).isFalse();
+        assertThat(lanes.offerFresh(request("fresh-0"))).isTrue();
+        assertThat(lanes.offerFresh(request("fresh-1"))).isTrue();
+        assertThat(lanes.offerFresh(request("fresh-2"))).isFalse();
+        assertThat(lanes.freshSize()).isEqualTo(2);
+        assertThat(lanes.retrySize()).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("Should wake waiting workers with nothing once closed")
+    void shouldWakeWaitingWorkersWithNothingOnceClosed() throws InterruptedException {
+        PaymentLanes lanes = new PaymentLanes(4, 4, 4, 1);
+        CountDownLatch woken = new CountDownLatch(1);
+        Thread.startVirtualThread(() -> {
+            try {
+                if (lanes.drainTo(new NewPaymentRequest[1]) == 0) {
+                    woken.countDown();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        lanes.close();
+
+        assertThat(woken.await(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(lanes.drainTo(new NewPaymentRequest[1])).isZero();
+    }
+
+    @Test
+    @DisplayName("Should hand over whatever is left in closed lanes")
+    void shouldHandOverWhateverIsLeftInClosedLanes() {
+        PaymentLanes lanes = new PaymentLanes(16, 16, 1, 1);
+        lanes.offerFresh(request("fresh-0"));
+        lanes.offerRetry(request("retry-0"));
+        lanes.offerFresh(request("fresh-1"));
+        lanes.close();
+
+        List<NewPaymentRequest> pending = new ArrayList<>();
+        lanes.drainRemaining(pending);
+
+        assertThat(pending.stream().map(NewPaymentRequest::correlationId).toList())
+                .containsExactly("fresh-0", "fresh-1", "retry-0");
+        assertThat(lanes.freshSize()).isZero();
+        assertThat(lanes.retrySize()).isZero();
+    }
+
+    private static List<String> drain(PaymentLanes lanes, int count) throws InterruptedException {
+        List<String> drained = new ArrayList<>();
+        NewPaymentRequest[] batch = new NewPaymentRequest[3];
+        while (drained.size() < count) {
+            int taken = lanes.drainTo(batch);
+            for (int i = 0; i < taken; i++) {
+                drained.add(batch[i].correlationId());
+            }
+        }
+        return drained;
+    }
+
+    private static NewPaymentRequest request(String correlationId) {
+        return new NewPaymentRequest(correlationId, BigDecimal.ONE);
+    }
+
+}
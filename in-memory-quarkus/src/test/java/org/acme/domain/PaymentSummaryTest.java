@@ -71,6 +71,15 @@ class PaymentSummaryTest {
         assertThat(summary.totalAmount()).isEqualTo(BigDecimal.valueOf(100.256));
     }
 
+    @Test
+    void testOfWithNumbersKeepsDecimalAmountsExact() {
+        PaymentSummary summary = PaymentSummary.of(2, new BigDecimal("12345678901234567.89"));
+
+        assertThat(summary.totalAmount()).isEqualTo(new BigDecimal("12345678901234567.89"));
+        assertThat(PaymentSummary.of(1, 9_007_199_254_740_993L).totalAmount())
+                .isEqualTo(BigDecimal.valueOf(9_007_199_254_740_993L));
+    }
+
     @Test
     void testOfWithSuppliers() {
         Supplier<Number> requestsSupplier = () -> 7;
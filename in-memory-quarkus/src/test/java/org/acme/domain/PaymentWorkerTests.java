@@ -0,0 +1,313 @@
+package org.acme.domain;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("PaymentWorker Tests")
+class PaymentWorkerTests {
+
+    private final StoredPayments payments = new StoredPayments();
+    private final PeerInstance peer = new PeerInstance();
+    private PaymentWorker worker;
+
+    @AfterEach
+    void tearDown() {
+        if (worker != null) {
+            worker.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("Should store payments off the thread their call completed on")
+    void shouldStorePaymentsOffTheThreadTheirCallCompletedOn() {
+        worker = start((processor, body) -> CompletableFuture.supplyAsync(() -> 200,
+                command -> Thread.ofPlatform().name("event-loop").start(command)));
+
+        assertThat(worker.admit(request("paid")).accepted()).isTrue();
+
+        await(() -> payments.stored.containsKey("paid"));
+        assertThat(payments.stored.get("paid").getName()).isNotEqualTo("event-loop");
+        assertThat(payments.stored.get("paid").isVirtual()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should retry payments whose call failed until one goes through")
+    void shouldRetryPaymentsWhoseCallFailedUntilOneGoesThrough() {
+        AtomicInteger calls = new AtomicInteger();
+        worker = start((processor, body) -> calls.getAndIncrement() < 2
+                ? CompletableFuture.failedFuture(new IllegalStateException("connection reset"))
+                : CompletableFuture.completedFuture(200));
+
+        assertThat(worker.admit(request("flaky")).accepted()).isTrue();
+
+        await(() -> payments.stored.containsKey("flaky"));
+        assertThat(calls.get()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Should retry payments that failed to be stored rather than lose them")
+    void shouldRetryPaymentsThatFailedToBeStoredRatherThanLoseThem() {
+        payments.failures.set(1);
+        worker = start((processor, body) -> CompletableFuture.completedFuture(200));
+
+        assertThat(worker.admit(request("stored-late")).accepted()).isTrue();
+
+        await(() -> payments.stored.containsKey("stored-late"));
+        assertThat(payments.failures.get()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should hand the payments still queued off to the peer and store those in flight on stop")
+    void shouldHandThePaymentsStillQueuedOffToThePeerAndStoreThoseInFlightOnStop() throws InterruptedException {
+        PendingCalls calls = new PendingCalls();
+        worker = start(calls);
+        assertThat(worker.enqueue(IntStream.range(0, 10).mapToObj(i -> request("pending-" + i)).toList()))
+                .isEqualTo(10);
+        await(() -> calls.inFlight() == 4);
+
+        Thread stopping = Thread.startVirtualThread(worker::stop);
+        while (stopping.isAlive()) {
+            calls.completeAll(200);
+            stopping.join(1);
+        }
+
+        assertThat(peer.handedOff).isNotEmpty();
+        assertThat(peer.handedOff).doesNotContainAnyElementsOf(payments.stored.keySet());
+        assertThat(peer.handedOff.size() + payments.stored.size()).isEqualTo(10);
+        assertThat(worker.admit(request("late")).accepted()).isFalse();
+        assertThat(worker.enqueue(List.of(request("late")))).isZero();
+    }
+
+    @Test
+    @DisplayName("Should hand every payment waiting for a retry off to the peer exactly once on stop")
+    void shouldHandEveryPaymentWaitingForARetryOffToThePeerExactlyOnceOnStop() {
+        worker = start((processor, body) -> CompletableFuture.supplyAsync(() -> 500));
+        assertThat(worker.enqueue(IntStream.range(0, 20).mapToObj(i -> request("failing-" + i)).toList()))
+                .isEqualTo(20);
+        await(() -> worker.concurrencyStats().inFlight() > 0);
+
+        worker.stop();
+
+        assertThat(payments.stored).isEmpty();
+        assertThat(peer.handedOff).containsExactlyInAnyOrderElementsOf(
+                IntStream.range(0, 20).mapToObj(i -> "failing-" + i).toList());
+    }
+
+    @Test
+    @DisplayName("Should store or hand off every payment accepted while stopping")
+    void shouldStoreOrHandOffEveryPaymentAcceptedWhileStopping() throws InterruptedException {
+        worker = start((processor, body) -> CompletableFuture.completedFuture(200));
+        List<String> accepted = new CopyOnWriteArrayList<>();
+        List<Thread> admitting = IntStream.range(0, 4)
+                .mapToObj(t -> Thread.startVirtualThread(() -> {
+                    for (int i = 0; i < 2_000; i++) {
+                        String id = "racing-" + t + "-" + i;
+                        if (worker.admit(request(id)).accepted()) {
+                            accepted.add(id);
+                        }
+                        Thread.yield();
+                    }
+                }))
+                .toList();
+        await(() -> accepted.size() > 10);
+
+        worker.stop();
+        for (Thread thread : admitting) {
+            thread.join();
+        }
+
+        List<String> sentOrHandedOff = new ArrayList<>(payments.stored.keySet());
+        sentOrHandedOff.addAll(peer.handedOff);
+        assertThat(sentOrHandedOff).containsExactlyInAnyOrderElementsOf(accepted);
+    }
+
+    @Test
+    @DisplayName("Should take one payment at a time per worker with a blocking client")
+    void shouldTakeOnePaymentAtATimePerWorkerWithABlockingClient() throws InterruptedException {
+        BlockingCalls calls = new BlockingCalls();
+        worker = worker(calls, 8);
+        worker.start();
+
+        assertThat(worker.enqueue(IntStream.range(0, 4).mapToObj(i -> request("blocking-" + i)).toList())).isEqualTo(4);
+
+        // both workers hold a call, rather than one of them holding the whole batch
+        await(() -> calls.entered.get() == 2);
+        Thread.sleep(50);
+        assertThat(calls.entered.get()).isEqualTo(2);
+        calls.released.release(4);
+        await(() -> payments.stored.size() == 4);
+    }
+
+    private PaymentWorker start(RemotePaymentClient client) {
+        PaymentWorker started = worker(client);
+        started.start();
+        return started;
+    }
+
+    private PaymentWorker worker(RemotePaymentClient client) {
+        return worker(client, 1);
+    }
+
+    private PaymentWorker worker(RemotePaymentClient client, int drainBatch) {
+        PaymentStats stats = new PaymentStats();
+        ProcessorHealthMonitor monitor = new ProcessorHealthMonitor(null, null, null,
+                Duration.ofSeconds(5), Duration.ofSeconds(5), true, Duration.ofSeconds(1));
+        PaymentProcessor processor = new PaymentProcessor(client, monitor, stats,
+                20, 0.5, Duration.ofSeconds(1), Duration.ofSeconds(1));
+        return new PaymentWorker(payments, processor, stats, new PaymentMiddleware(peer, stats),
+                64, 64, 4, 1, 2, drainBatch,
+                Duration.ofMillis(1), Duration.ofMillis(10), 0,
+                1, 4, 8, 2.0, 0.9,
+                Duration.ofSeconds(1), Duration.ofSeconds(1), 2);
+    }
+
+    static NewPaymentRequest request(String correlationId) {
+        return new NewPaymentRequest(correlationId, new BigDecimal("19.90"));
+    }
+
+    static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime() < deadline).isTrue();
+            Thread.yield();
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    // the payments stored, with the thread that stored each
+    static final class StoredPayments implements Payments {
+
+        final Map<String, Thread> stored = new ConcurrentHashMap<>();
+        final AtomicInteger failures = new AtomicInteger();
+
+        @Override
+        public void add(Payment payment) {
+            if (failures.getAndUpdate(left -> Math.max(0, left - 1)) > 0) {
+                throw new IllegalStateException("store unavailable");
+            }
+            stored.putIfAbsent(payment.correlationId(), Thread.currentThread());
+        }
+
+        @Override
+        public boolean contains(String correlationId) {
+            return stored.containsKey(correlationId);
+        }
+
+        @Override
+        public void purge() {
+            stored.clear();
+        }
+
+        @Override
+        public PaymentsSummary getSummary(Instant from, Instant to) {
+            return PaymentsSummary.ZERO;
+        }
+    }
+
+    // calls left in flight until the test completes them
+    static final class PendingCalls implements RemotePaymentClient {
+
+        private final Queue<CompletableFuture<Integer>> pending = new ConcurrentLinkedQueue<>();
+
+        @Override
+        public CompletionStage<Integer> post(RemotePaymentName processor, byte[] body) {
+            CompletableFuture<Integer> call = new CompletableFuture<>();
+            pending.add(call);
+            return call;
+        }
+
+        int inFlight() {
+            return pending.size();
+        }
+
+        void completeAll(int status) {
+            for (CompletableFuture<Integer> call = pending.poll(); call != null; call = pending.poll()) {
+                call.complete(status);
+            }
+        }
+    }
+
+    // calls holding the caller until the test releases them, as the rest client does
+    static final class BlockingCalls implements RemotePaymentClient {
+
+        final AtomicInteger entered = new AtomicInteger();
+        final Semaphore released = new Semaphore(0);
+
+        @Override
+        public CompletionStage<Integer> post(RemotePaymentName processor, byte[] body) {
+            entered.incrementAndGet();
+            released.acquireUninterruptibly();
+            return CompletableFuture.completedFuture(200);
+        }
+
+        @Override
+        public boolean isBlocking() {
+            return true;
+        }
+    }
+
+    // the other instance, taking up to a given number of the payments handed off to it
+    static final class PeerInstance implements InternalPaymentsManagement {
+
+        final List<String> handedOff = new CopyOnWriteArrayList<>();
+        volatile int capacity = Integer.MAX_VALUE;
+
+        @Override
+        public int enqueuePendingPayments(List<PendingPayment> payments) {
+            int taken = 0;
+            for (PendingPayment payment : payments) {
+                if (handedOff.size() < capacity) {
+                    handedOff.add(payment.correlationId());
+                    taken++;
+                }
+            }
+            return taken;
+        }
+
+        @Override
+        public PaymentsSummary getSummary(String fromStr, String toStr) {
+            return PaymentsSummary.ZERO;
+        }
+
+        @Override
+        public void purgeInternalPayments() {
+        }
+
+        @Override
+        public ProcessorsHealth getProcessorsHealth() {
+            return ProcessorsHealth.UNKNOWN;
+        }
+
+        @Override
+        public String healthReadyCheck() {
+            return "UP";
+        }
+    }
+
+}
@@ -197,6 +197,28 @@ public interface PaymentsTests {
             assertThat(summary.fallbackPaymentSummary().totalRequests()).isEqualTo(1L);
             assertThat(summary.fallbackPaymentSummary().totalAmount()).isEqualTo(BigDecimal.valueOf(60.00));
         }
+
+        @Test
+        @DisplayName("Should ignore payment with an already stored correlationId")
+        default void shouldIgnorePaymentWithAnAlreadyStoredCorrelationId() {
+            var context = testContext();
+            var payments = context.payments();
+            var baseTime = context.baseTime();
+            var fromTime = context.fromTime();
+            var toTime = context.toTime();
+
+            Payment payment = createPayment("corr-1", RemotePaymentName.DEFAULT, BigDecimal.valueOf(100.00), baseTime);
+            Payment duplicate = createPayment("corr-1", RemotePaymentName.FALLBACK, BigDecimal.valueOf(100.00), baseTime);
+
+            assertThat(payments.contains("corr-1")).isFalse();
+            payments.add(payment);
+            assertThat(payments.contains("corr-1")).isTrue();
+            payments.add(duplicate);
+
+            PaymentsSummary summary = payments.getSummary(fromTime, toTime);
+            assertThat(summary.defaultPaymentSummary().totalRequests()).isEqualTo(1L);
+            assertThat(summary.fallbackPaymentSummary().totalRequests()).isZero();
+        }
     }
 
     @DisplayName("Purge Tests")
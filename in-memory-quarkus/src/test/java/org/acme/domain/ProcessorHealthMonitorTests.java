@@ -0,0 +1,51 @@
+package org.acme.domain;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("ProcessorHealthMonitor Tests")
+class ProcessorHealthMonitorTests {
+
+    private ProcessorHealthMonitor monitor;
+
+    @BeforeEach
+    void setUp() {
+        monitor = new ProcessorHealthMonitor(null, null, null,
+                Duration.ofSeconds(5), Duration.ofSeconds(5), true, Duration.ofSeconds(1));
+    }
+
+    @Test
+    @DisplayName("Should prefer the default processor until told otherwise")
+    void shouldPreferTheDefaultProcessorUntilToldOtherwise() {
+        assertThat(monitor.preferred()).contains(RemotePaymentName.DEFAULT);
+    }
+
+    @Test
+    @DisplayName("Should route to the fallback processor while the default one fails or is too slow")
+    void shouldRouteToTheFallbackProcessorWhileTheDefaultOneFailsOrIsTooSlow() {
+        monitor.record(RemotePaymentName.DEFAULT, new ServiceHealth(true, 0));
+        assertThat(monitor.preferred()).contains(RemotePaymentName.FALLBACK);
+
+        monitor.record(RemotePaymentName.DEFAULT, new ServiceHealth(false, 1_000));
+        assertThat(monitor.preferred()).contains(RemotePaymentName.FALLBACK);
+
+        monitor.record(RemotePaymentName.DEFAULT, new ServiceHealth(false, 100));
+        assertThat(monitor.preferred()).contains(RemotePaymentName.DEFAULT);
+    }
+
+    @Test
+    @DisplayName("Should route nowhere while both processors fail")
+    void shouldRouteNowhereWhileBothProcessorsFail() {
+        monitor.record(RemotePaymentName.DEFAULT, new ServiceHealth(true, 0));
+        monitor.record(RemotePaymentName.FALLBACK, new ServiceHealth(true, 0));
+
+        assertThat(monitor.preferred()).isEmpty();
+        assertThat(monitor.current()).isEqualTo(new ProcessorsHealth(new ServiceHealth(true, 0), new ServiceHealth(true, 0)));
+    }
+
+}
@@ -0,0 +1,75 @@
+package org.acme.domain;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("RemotePaymentRequestWriter Tests")
+class RemotePaymentRequestWriterTests {
+
+    private static final DateTimeFormatter TIMESTAMP =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'").withZone(ZoneOffset.UTC);
+
+    @Test
+    @DisplayName("Should encode a compact request")
+    void shouldEncodeACompactRequest() {
+        UUID id = UUID.fromString("4a7901b8-7d26-4d9d-aa19-4dc1c7cf60b3");
+        NewPaymentRequest request = NewPaymentRequest.compact(id.getMostSignificantBits(), id.getLeastSignificantBits(), 1990);
+
+        assertThat(write(request, Instant.parse("2025-07-15T12:34:56.789Z").toEpochMilli()))
+                .isEqualTo("{\"correlationId\":\"4a7901b8-7d26-4d9d-aa19-4dc1c7cf60b3\",\"amount\":19.90,"
+                        + "\"requestedAt\":\"2025-07-15T12:34:56.789Z\"}");
+    }
+
+    @Test
+    @DisplayName("Should encode the amounts and ids of compact requests as their text")
+    void shouldEncodeTheAmountsAndIdsOfCompactRequestsAsTheirText() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long[] cents = {0, 5, 10, 99, 100, 1990, 123456789, 9_999_999_999_999_999L};
+        for (long amount : cents) {
+            UUID id = new UUID(random.nextLong(), random.nextLong());
+            NewPaymentRequest request = NewPaymentRequest.compact(id.getMostSignificantBits(), id.getLeastSignificantBits(), amount);
+
+            assertThat(write(request, 0)).isEqualTo("{\"correlationId\":\"" + id + "\",\"amount\":"
+                    + BigDecimal.valueOf(amount, 2).toPlainString() + ",\"requestedAt\":\"1970-01-01T00:00:00.000Z\"}");
+        }
+    }
+
+    @Test
+    @DisplayName("Should encode any timestamp to the millisecond in UTC")
+    void shouldEncodeAnyTimestampToTheMillisecondInUtc() {
+        NewPaymentRequest request = new NewPaymentRequest("id", new BigDecimal("1.00"));
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long[] millis = {0, 951_782_400_000L, 4_107_542_399_999L, -1};
+        for (long epochMillis : millis) {
+            assertThat(write(request, epochMillis)).endsWith("\"" + TIMESTAMP.format(Instant.ofEpochMilli(epochMillis)) + "\"}");
+        }
+        for (int i = 0; i < 10_000; i++) {
+            long epochMillis = random.nextLong(0, 253_402_300_799_999L);
+            assertThat(write(request, epochMillis)).endsWith("\"" + TIMESTAMP.format(Instant.ofEpochMilli(epochMillis)) + "\"}");
+        }
+    }
+
+    @Test
+    @DisplayName("Should encode other requests as their escaped text")
+    void shouldEncodeOtherRequestsAsTheirEscapedText() {
+        NewPaymentRequest request = new NewPaymentRequest("a\"b\\c\nd-ç", new BigDecimal("1E+2"));
+
+        assertThat(write(request, 0)).isEqualTo("{\"correlationId\":\"a\\\"b\\\\c\\u000ad-ç\",\"amount\":100,"
+                + "\"requestedAt\":\"1970-01-01T00:00:00.000Z\"}");
+    }
+
+    private static String write(NewPaymentRequest request, long epochMillis) {
+        return new String(RemotePaymentRequestWriter.write(request, epochMillis), StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,44 @@
+package org.acme.domain;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("RetryBackoff Tests")
+class RetryBackoffTests {
+
+    @Test
+    @DisplayName("Should double the delay on every attempt up to the maximum")
+    void shouldDoubleTheDelayOnEveryAttemptUpToTheMaximum() {
+        RetryBackoff backoff = new RetryBackoff(Duration.ofMillis(10), Duration.ofSeconds(1), 0);
+
+        assertThat(backoff.delayNanos(0)).isEqualTo(Duration.ofMillis(10).toNanos());
+        assertThat(backoff.delayNanos(1)).isEqualTo(Duration.ofMillis(20).toNanos());
+        assertThat(backoff.delayNanos(3)).isEqualTo(Duration.ofMillis(80).toNanos());
+        assertThat(backoff.delayNanos(7)).isEqualTo(Duration.ofSeconds(1).toNanos());
+        assertThat(backoff.delayNanos(Integer.MAX_VALUE)).isEqualTo(Duration.ofSeconds(1).toNanos());
+    }
+
+    @Test
+    @DisplayName("Should shorten the delay by at most the jitter")
+    void shouldShortenTheDelayByAtMostTheJitter() {
+        RetryBackoff backoff = new RetryBackoff(Duration.ofMillis(10), Duration.ofSeconds(1), 0.5);
+
+        for (int i = 0; i < 1_000; i++) {
+            assertThat(backoff.delayNanos(2))
+                    .isBetween(Duration.ofMillis(20).toNanos(), Duration.ofMillis(40).toNanos());
+        }
+    }
+
+    @Test
+    @DisplayName("Should reject a jitter outside [0, 1]")
+    void shouldRejectAJitterOutsideZeroAndOne() {
+        assertThatThrownBy(() -> new RetryBackoff(Duration.ofMillis(10), Duration.ofSeconds(1), 1.5))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+}
@@ -0,0 +1,106 @@
+package org.acme.domain;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("RingBuffer Tests")
+class RingBufferTests {
+
+    @Test
+    @DisplayName("Should round the capacity up to a power of two and refuse offers once full")
+    void shouldRoundTheCapacityUpToAPowerOfTwoAndRefuseOffersOnceFull() {
+        RingBuffer<Integer> ring = new RingBuffer<>(3);
+
+        assertThat(ring.capacity()).isEqualTo(4);
+        IntStream.range(0, 4).forEach(i -> assertThat(ring.offer(i)).isTrue());
+        assertThat(ring.offer(4)).isFalse();
+        assertThat(ring.poll()).isEqualTo(0);
+        assertThat(ring.offer(4)).isTrue();
+        assertThat(ring.size()).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("Should never overwrite an element of a ring of capacity one")
+    void shouldNeverOverwriteAnElementOfARingOfCapacityOne() {
+        RingBuffer<Integer> ring = new RingBuffer<>(1);
+
+        assertThat(ring.capacity()).isEqualTo(2);
+        assertThat(ring.offer(0)).isTrue();
+        assertThat(ring.offer(1)).isTrue();
+        assertThat(ring.offer(2)).isFalse();
+        assertThat(ring.poll()).isEqualTo(0);
+        assertThat(ring.poll()).isEqualTo(1);
+        assertThat(ring.poll()).isNull();
+        for (int i = 0; i < 10; i++) {
+            assertThat(ring.offer(i)).isTrue();
+            assertThat(ring.poll()).isEqualTo(i);
+        }
+    }
+
+    @Test
+    @DisplayName("Should poll in offer order across laps")
+    void shouldPollInOfferOrderAcrossLaps() {
+        RingBuffer<Integer> ring = new RingBuffer<>(4);
+        List<Integer> polled = new ArrayList<>();
+
+        for (int i = 0; i < 10; i++) {
+            ring.offer(i);
+            if (i % 2 == 1) {
+                polled.add(ring.poll());
+                polled.add(ring.poll());
+            }
+        }
+
+        assertThat(polled).containsExactlyElementsOf(IntStream.range(0, 10).boxed().toList());
+        assertThat(ring.poll()).isNull();
+    }
+
+    @Test
+    @DisplayName("Should hand every element to exactly one consumer")
+    void shouldHandEveryElementToExactlyOneConsumer() throws InterruptedException {
+        RingBuffer<Integer> ring = new RingBuffer<>(64);
+        int producers = 4;
+        int perProducer = 50_000;
+        Set<Integer> consumed = ConcurrentHashMap.newKeySet();
+        AtomicInteger duplicates = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int first = p * perProducer;
+            threads.add(Thread.startVirtualThread(() -> {
+                for (int i = first; i < first + perProducer; i++) {
+                    while (!ring.offer(i)) {
+                        Thread.yield();
+                    }
+                }
+            }));
+        }
+        for (int c = 0; c < 4; c++) {
+            threads.add(Thread.startVirtualThread(() -> {
+                while (consumed.size() < producers * perProducer) {
+                    Integer element = ring.poll();
+                    if (element == null) {
+                        Thread.yield();
+                    } else if (!consumed.add(element)) {
+                        duplicates.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(consumed.size()).isEqualTo(producers * perProducer);
+        assertThat(duplicates.get()).isZero();
+    }
+
+}
@@ -0,0 +1,90 @@
+package org.acme.infrastructure;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("ChunkedAppendLog Tests")
+class ChunkedAppendLogTests {
+
+    @Test
+    @DisplayName("Should stream appended elements in order across chunks")
+    void shouldStreamAppendedElementsInOrderAcrossChunks() {
+        ChunkedAppendLog<Long> log = new ChunkedAppendLog<>(8);
+
+        LongStream.range(0, 100).forEach(log::append);
+
+        assertThat(log.size()).isEqualTo(100L);
+        assertThat(log.stream().toList()).isEqualTo(LongStream.range(0, 100).boxed().toList());
+        assertThat(log.stream().parallel().mapToLong(Long::longValue).sum()).isEqualTo(4950L);
+    }
+
+    @Test
+    @DisplayName("Should only expose a fully written prefix to concurrent readers")
+    void shouldOnlyExposeAFullyWrittenPrefixToConcurrentReaders() throws InterruptedException {
+        ChunkedAppendLog<Long> log = new ChunkedAppendLog<>(64);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        AtomicBoolean writing = new AtomicBoolean(true);
+
+        CompletableFuture<Void> reader = CompletableFuture.runAsync(() -> {
+            long previousSize = 0;
+            while (writing.get()) {
+                long size = log.size();
+                List<Long> prefix = log.stream().toList();
+                assertThat(prefix.stream().allMatch(Objects::nonNull)).isTrue();
+                assertThat(size >= previousSize).isTrue();
+                assertThat((long) prefix.size() >= size).isTrue();
+                previousSize = size;
+            }
+        }, executor);
+
+        List<CompletableFuture<Void>> writers = new ArrayList<>();
+        for (int writer = 0; writer < 7; writer++) {
+            long offset = writer * 10_000L;
+            writers.add(CompletableFuture.runAsync(
+                    () -> LongStream.range(offset, offset + 10_000).forEach(log::append), executor));
+        }
+        CompletableFuture.allOf(writers.toArray(new CompletableFuture[0])).join();
+        writing.set(false);
+        reader.join();
+
+        assertThat(log.size()).isEqualTo(70_000L);
+        assertThat(log.stream().distinct().count()).isEqualTo(70_000L);
+
+        executor.shutdown();
+        assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should publish every element when many writers race over tiny chunks")
+    void shouldPublishEveryElementWhenManyWritersRaceOverTinyChunks() throws InterruptedException {
+        ChunkedAppendLog<Long> log = new ChunkedAppendLog<>(2);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        List<CompletableFuture<Void>> writers = new ArrayList<>();
+        for (int writer = 0; writer < 8; writer++) {
+            long offset = writer * 20_000L;
+            writers.add(CompletableFuture.runAsync(
+                    () -> LongStream.range(offset, offset + 20_000).forEach(log::append), executor));
+        }
+        CompletableFuture.allOf(writers.toArray(new CompletableFuture[0])).join();
+
+        assertThat(log.size()).isEqualTo(160_000L);
+        assertThat(log.stream().distinct().count()).isEqualTo(160_000L);
+
+        executor.shutdown();
+        assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+}
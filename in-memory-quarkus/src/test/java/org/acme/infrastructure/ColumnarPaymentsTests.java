@@ -0,0 +1,44 @@
+package org.acme.infrastructure;
+
+import org.acme.domain.Payment;
+import org.acme.domain.PaymentsTests;
+import org.acme.domain.RemotePaymentName;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("ColumnarPayments Tests")
+class ColumnarPaymentsTests implements PaymentsTests.AllTests {
+
+    private ColumnarPayments payments;
+
+    @BeforeEach
+    void setUp() {
+        payments = new ColumnarPayments(ColumnarPayments.DEFAULT_CORRELATION_IDS_CAPACITY);
+    }
+
+    @Override
+    public PaymentsTests.Context testContext() {
+        return PaymentsTests.Context.of(payments);
+    }
+
+    @Test
+    @DisplayName("Should only keep as many correlation ids as configured")
+    void shouldOnlyKeepAsManyCorrelationIdsAsConfigured() {
+        ColumnarPayments payments = new ColumnarPayments(64);
+        Instant now = Instant.parse("2025-07-21T10:00:00Z");
+        for (int i = 0; i < 1_000; i++) {
+            payments.add(Payment.of("corr-" + i, RemotePaymentName.DEFAULT, BigDecimal.ONE, now));
+        }
+
+        assertThat(payments.contains("corr-0")).isFalse();
+        assertThat(payments.contains("corr-999")).isTrue();
+        assertThat(payments.getSummary(null, null).defaultPaymentSummary().totalRequests()).isEqualTo(1_000L);
+    }
+
+}
@@ -0,0 +1,102 @@
+package org.acme.infrastructure;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("CorrelationIdSet Tests")
+class CorrelationIdSetTests {
+
+    @Test
+    @DisplayName("Should reject correlation ids already in the set")
+    void shouldRejectCorrelationIdsAlreadyInTheSet() {
+        CorrelationIdSet correlationIds = new CorrelationIdSet();
+        String uuid = UUID.randomUUID().toString();
+
+        assertThat(correlationIds.contains(uuid)).isFalse();
+        assertThat(correlationIds.add(uuid)).isTrue();
+        assertThat(correlationIds.add(uuid)).isFalse();
+        assertThat(correlationIds.contains(uuid)).isTrue();
+        assertThat(correlationIds.contains(uuid.toUpperCase())).isTrue();
+
+        assertThat(correlationIds.add("corr-1")).isTrue();
+        assertThat(correlationIds.add("corr-1")).isFalse();
+        assertThat(correlationIds.contains("corr-2")).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should track the all zero UUID apart from empty slots")
+    void shouldTrackTheAllZeroUUIDApartFromEmptySlots() {
+        CorrelationIdSet correlationIds = new CorrelationIdSet();
+        String zero = new UUID(0, 0).toString();
+
+        assertThat(correlationIds.contains(zero)).isFalse();
+        assertThat(correlationIds.add(zero)).isTrue();
+        assertThat(correlationIds.add(zero)).isFalse();
+        assertThat(correlationIds.contains(zero)).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should forget every correlation id on clear")
+    void shouldForgetEveryCorrelationIdOnClear() {
+        CorrelationIdSet correlationIds = new CorrelationIdSet();
+        List<String> uuids = IntStream.range(0, 10_000).mapToObj(i -> UUID.randomUUID().toString()).toList();
+        uuids.forEach(correlationIds::add);
+
+        correlationIds.clear();
+
+        assertThat(uuids.stream().noneMatch(correlationIds::contains)).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should accept each correlation id once under concurrent additions")
+    void shouldAcceptEachCorrelationIdOnceUnderConcurrentAdditions() throws InterruptedException {
+        CorrelationIdSet correlationIds = new CorrelationIdSet();
+        List<String> uuids = IntStream.range(0, 50_000).mapToObj(i -> UUID.randomUUID().toString()).toList();
+        AtomicInteger accepted = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int writer = 0; writer < 8; writer++) {
+            futures.add(CompletableFuture.runAsync(() -> uuids.forEach(uuid -> {
+                if (correlationIds.add(uuid)) {
+                    accepted.incrementAndGet();
+                }
+            }), executor));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+        assertThat(accepted.get()).isEqualTo(50_000);
+        assertThat(uuids.stream().allMatch(correlationIds::contains)).isTrue();
+
+        executor.shutdown();
+        assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should keep at most two capacities of the latest correlation ids")
+    void shouldKeepAtMostTwoCapacitiesOfTheLatestCorrelationIds() {
+        CorrelationIdSet correlationIds = new CorrelationIdSet(6_400);
+        List<String> uuids = IntStream.range(0, 100_000).mapToObj(i -> UUID.randomUUID().toString()).toList();
+
+        for (String uuid : uuids) {
+            assertThat(correlationIds.add(uuid)).isTrue();
+            assertThat(correlationIds.size()).isLessThanOrEqualTo(2 * 6_400L);
+        }
+
+        assertThat(uuids.subList(uuids.size() - 3_000, uuids.size()).stream().allMatch(correlationIds::contains)).isTrue();
+        assertThat(uuids.subList(0, 50_000).stream().noneMatch(correlationIds::contains)).isTrue();
+    }
+
+}
@@ -0,0 +1,46 @@
+package org.acme.infrastructure;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("FixedPointAmounts Tests")
+class FixedPointAmountsTests {
+
+    private static long exactUnits(BigDecimal amount) {
+        return amount.setScale(FixedPointAmounts.SCALE).unscaledValue().longValueExact();
+    }
+
+    @Test
+    @DisplayName("Should convert amounts to their exact units")
+    void shouldConvertAmountsToTheirExactUnits() {
+        List<String> amounts = List.of("0", "0.0001", "-0.0001", "19.90", "0.1", "0.3", "5", "0.125",
+                "112589990684.2623", "-112589990684.2623", "112589990684.2624", "922337203685477.5807",
+                "-922337203685477.5808", "1E+3", "1.10E+2");
+        for (String amount : amounts) {
+            assertThat(FixedPointAmounts.toUnits(new BigDecimal(amount))).isEqualTo(exactUnits(new BigDecimal(amount)));
+        }
+
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < 100_000; i++) {
+            BigDecimal amount = BigDecimal.valueOf(random.nextLong(-(1L << 46), 1L << 46), random.nextInt(FixedPointAmounts.SCALE + 1));
+            assertThat(FixedPointAmounts.toUnits(amount)).isEqualTo(exactUnits(amount));
+        }
+    }
+
+    @Test
+    @DisplayName("Should refuse amounts with more decimal places, or more units than a long holds")
+    void shouldRefuseAmountsWithMoreDecimalPlacesOrMoreUnitsThanALongHolds() {
+        assertThatThrownBy(() -> FixedPointAmounts.toUnits(new BigDecimal("0.00001")))
+                .isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> FixedPointAmounts.toUnits(new BigDecimal("922337203685477.5808")))
+                .isInstanceOf(ArithmeticException.class);
+    }
+
+}
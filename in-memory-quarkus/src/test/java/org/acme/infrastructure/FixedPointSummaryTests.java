@@ -0,0 +1,93 @@
+package org.acme.infrastructure;
+
+import org.acme.domain.Payment;
+import org.acme.domain.PaymentSummary;
+import org.acme.domain.PaymentsSummary;
+import org.acme.domain.RemotePaymentName;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("FixedPointSummary Tests")
+class FixedPointSummaryTests {
+
+    private static final Instant NOW = Instant.parse("2025-07-21T10:00:00Z");
+
+    private static Payment payment(RemotePaymentName processor, String amount) {
+        return Payment.of(null, processor, new BigDecimal(amount), NOW);
+    }
+
+    private static BigDecimal sum(List<Payment> payments, RemotePaymentName processor) {
+        return payments.stream()
+                .filter(payment -> payment.processedBy() == processor)
+                .map(Payment::amount)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    @Test
+    @DisplayName("Should sum as BigDecimal would, scale included")
+    void shouldSumAsBigDecimalWouldScaleIncluded() {
+        List<Payment> payments = List.of(
+                payment(RemotePaymentName.DEFAULT, "19.90"),
+                payment(RemotePaymentName.DEFAULT, "0.1"),
+                payment(RemotePaymentName.DEFAULT, "5"),
+                payment(RemotePaymentName.FALLBACK, "0.125"),
+                payment(RemotePaymentName.FALLBACK, "-0.025"));
+
+        PaymentsSummary summary = payments.stream().collect(FixedPointSummary.collector());
+
+        assertThat(summary.defaultPaymentSummary()).isEqualTo(PaymentSummary.of(3L, sum(payments, RemotePaymentName.DEFAULT)));
+        assertThat(summary.fallbackPaymentSummary()).isEqualTo(PaymentSummary.of(2L, sum(payments, RemotePaymentName.FALLBACK)));
+    }
+
+    @Test
+    @DisplayName("Should sum amounts beyond the fixed-point range apart")
+    void shouldSumAmountsBeyondTheFixedPointRangeApart() {
+        List<Payment> payments = List.of(
+                payment(RemotePaymentName.DEFAULT, "0.00001"),
+                payment(RemotePaymentName.DEFAULT, "900000000000000"),
+                payment(RemotePaymentName.DEFAULT, "900000000000000"),
+                payment(RemotePaymentName.DEFAULT, "1.5"),
+                payment(RemotePaymentName.FALLBACK, "0.123456"));
+
+        PaymentsSummary summary = payments.stream().collect(FixedPointSummary.collector());
+
+        assertThat(summary.defaultPaymentSummary()).isEqualTo(PaymentSummary.of(4L, sum(payments, RemotePaymentName.DEFAULT)));
+        assertThat(summary.fallbackPaymentSummary()).isEqualTo(PaymentSummary.of(1L, sum(payments, RemotePaymentName.FALLBACK)));
+    }
+
+    @Test
+    @DisplayName("Should sum amounts with more decimal places than a scale bit stands for apart")
+    void shouldSumAmountsWithMoreDecimalPlacesThanAScaleBitStandsForApart() {
+        List<Payment> payments = List.of(
+                payment(RemotePaymentName.DEFAULT, "19.90"),
+                payment(RemotePaymentName.DEFAULT, "1." + "0".repeat(32)),
+                payment(RemotePaymentName.DEFAULT, "2." + "0".repeat(40)));
+
+        PaymentsSummary summary = payments.stream().collect(FixedPointSummary.collector());
+
+        assertThat(summary.defaultPaymentSummary()).isEqualTo(PaymentSummary.of(3L, sum(payments, RemotePaymentName.DEFAULT)));
+        assertThat(summary.defaultPaymentSummary().totalAmount().scale()).isEqualTo(40);
+    }
+
+    @Test
+    @DisplayName("Should combine partial sums of a parallel stream")
+    void shouldCombinePartialSumsOfAParallelStream() {
+        List<Payment> payments = IntStream.range(0, 100_000)
+                .mapToObj(i -> Payment.of("corr-" + i,
+                        i % 3 == 0 ? RemotePaymentName.FALLBACK : RemotePaymentName.DEFAULT,
+                        BigDecimal.valueOf(i, i % 4), NOW))
+                .toList();
+
+        PaymentsSummary summary = payments.parallelStream().collect(FixedPointSummary.collector());
+
+        assertThat(summary.defaultPaymentSummary().totalAmount()).isEqualTo(sum(payments, RemotePaymentName.DEFAULT));
+        assertThat(summary.fallbackPaymentSummary().totalAmount()).isEqualTo(sum(payments, RemotePaymentName.FALLBACK));
+    }
+}
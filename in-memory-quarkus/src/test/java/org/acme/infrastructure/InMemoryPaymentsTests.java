@@ -1,8 +1,23 @@
 package org.acme.infrastructure;
 
+import org.acme.domain.Payment;
+import org.acme.domain.PaymentsSummary;
 import org.acme.domain.PaymentsTests;
+import org.acme.domain.RemotePaymentName;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
 
 @DisplayName("InMemoryPayments Tests")
 class InMemoryPaymentsTests implements PaymentsTests.AllTests {
@@ -11,7 +26,20 @@ class InMemoryPaymentsTests implements PaymentsTests.AllTests {
 
     @BeforeEach
     void setUp() {
-        payments = new InMemoryPayments(InMemoryPayments.DEFAULT_PARALLEL_STREAM_THRESHOLD);
+        payments = new InMemoryPayments(
+                InMemoryPayments.DEFAULT_PARALLEL_STREAM_THRESHOLD,
+                InMemoryPayments.DEFAULT_REORDER_WINDOW,
+                InMemoryPayments.DEFAULT_RETENTION_HORIZON,
+                InMemoryPayments.DEFAULT_COMPACTION_INTERVAL,
+                InMemoryPayments.DEFAULT_ROLL_UPS_COARSE_AFTER,
+                InMemoryPayments.DEFAULT_ROLL_UPS_HORIZON,
+                InMemoryPayments.DEFAULT_CORRELATION_IDS_CAPACITY,
+                PaymentsJournal.disabled());
+    }
+
+    @AfterEach
+    void tearDown() {
+        payments.close();
     }
 
     @Override
@@ -19,4 +47,180 @@ class InMemoryPaymentsTests implements PaymentsTests.AllTests {
         return PaymentsTests.Context.of(payments);
     }
 
+    @Test
+    @DisplayName("Should keep interval aligned summaries exact after compaction")
+    void shouldKeepIntervalAlignedSummariesExactAfterCompaction() {
+        Instant baseTime = Instant.parse("2025-07-21T10:00:00Z");
+        IntStream.range(0, 6_000).forEach(i -> payments.add(Payment.of("corr-" + i,
+                i % 3 == 0 ? RemotePaymentName.FALLBACK : RemotePaymentName.DEFAULT,
+                BigDecimal.valueOf(i % 100, 2),
+                baseTime.plusMillis(i * 10L))));
+        List<Instant[]> ranges = List.of(
+                new Instant[]{baseTime.plusSeconds(10), baseTime.plusSeconds(40)},
+                new Instant[]{baseTime.plusSeconds(10), baseTime.plusSeconds(20)},
+                new Instant[]{baseTime.plusSeconds(25), baseTime.plusSeconds(35)},
+                new Instant[]{null, baseTime.plusSeconds(29)},
+                new Instant[]{baseTime.plusSeconds(29), null},
+                new Instant[]{null, null});
+        List<PaymentsSummary> beforeCompaction = ranges.stream()
+                .map(range -> payments.getSummary(range[0], range[1]))
+                .toList();
+
+        payments.compact(baseTime.plusSeconds(30));
+
+        assertThat(ranges.stream().map(range -> payments.getSummary(range[0], range[1])).toList())
+                .isEqualTo(beforeCompaction);
+    }
+
+    @Test
+    @DisplayName("Should count every payment once in summaries racing with compactions")
+    void shouldCountEveryPaymentOnceInSummariesRacingWithCompactions() throws InterruptedException {
+        Instant baseTime = Instant.parse("2025-07-21T10:00:00Z");
+        int seconds = 120;
+        int perSecond = 50;
+        for (int second = 0; second < seconds; second++) {
+            for (int i = 0; i < perSecond; i++) {
+                payments.add(Payment.of("corr-" + second + "-" + i, RemotePaymentName.DEFAULT,
+                        BigDecimal.ONE, baseTime.plusSeconds(second).plusNanos(i * 1_000_001L)));
+            }
+        }
+        long total = (long) seconds * perSecond;
+        Thread compacting = Thread.startVirtualThread(() -> {
+            for (int second = 1; second <= seconds; second++) {
+                payments.compact(baseTime.plusSeconds(second));
+                Thread.yield();
+            }
+        });
+
+        List<Long> counted = new ArrayList<>();
+        while (compacting.isAlive()) {
+            // the index answers the first, the segments the second
+            counted.add(payments.getSummary(null, null).defaultPaymentSummary().totalRequests());
+            counted.add(payments.getSummary(baseTime, baseTime.plusSeconds(seconds).plusNanos(1))
+                    .defaultPaymentSummary().totalRequests());
+        }
+        compacting.join();
+
+        assertThat(counted).allSatisfy(count -> assertThat(count).isEqualTo(total));
+        assertThat(payments.getSummary(null, null).defaultPaymentSummary().totalRequests()).isEqualTo(total);
+    }
+
+    @Test
+    @DisplayName("Should fold payments of compacted intervals arriving late into the roll-ups")
+    void shouldFoldPaymentsOfCompactedIntervalsArrivingLateIntoTheRollUps() {
+        Instant baseTime = Instant.parse("2025-07-21T10:00:00Z");
+        payments.add(Payment.of("corr-1", RemotePaymentName.DEFAULT, BigDecimal.TEN, baseTime));
+        payments.compact(baseTime.plusSeconds(60));
+
+        payments.add(Payment.of("corr-2", RemotePaymentName.DEFAULT, BigDecimal.ONE, baseTime.plusMillis(500)));
+
+        PaymentsSummary summary = payments.getSummary(baseTime, baseTime.plusSeconds(1));
+        assertThat(summary.defaultPaymentSummary().totalRequests()).isEqualTo(2L);
+        assertThat(summary.defaultPaymentSummary().totalAmount()).isEqualTo(BigDecimal.valueOf(11));
+    }
+
+    @Test
+    @DisplayName("Should land payments racing with a purge wholly in one generation")
+    void shouldLandPaymentsRacingWithAPurgeWhollyInOneGeneration() throws InterruptedException {
+        Instant baseTime = Instant.parse("2025-07-21T10:00:00Z");
+        int writers = 4;
+        int paymentsPerWriter = 5_000;
+        CountDownLatch started = new CountDownLatch(writers);
+        List<Thread> threads = IntStream.range(0, writers)
+                .mapToObj(writer -> Thread.startVirtualThread(() -> {
+                    started.countDown();
+                    for (int i = 0; i < paymentsPerWriter; i++) {
+                        payments.add(Payment.of("corr-" + writer + "-" + i, RemotePaymentName.DEFAULT,
+                                BigDecimal.ONE, baseTime.plusMillis(i)));
+                    }
+                }))
+                .toList();
+        started.await();
+        payments.purge();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        long kept = IntStream.range(0, writers)
+                .flatMap(writer -> IntStream.range(0, paymentsPerWriter)
+                        .filter(i -> payments.contains("corr-" + writer + "-" + i)))
+                .count();
+        PaymentsSummary summary = payments.getSummary(null, null);
+        assertThat(summary.defaultPaymentSummary().totalRequests()).isEqualTo(kept);
+        assertThat(summary.defaultPaymentSummary().totalAmount()).isEqualByComparingTo(BigDecimal.valueOf(kept));
+    }
+
+    @Test
+    @DisplayName("Should shut its reduction pool down on close and still answer summaries")
+    void shouldShutItsReductionPoolDownOnCloseAndStillAnswerSummaries() {
+        InMemoryPayments payments = new InMemoryPayments(
+                0,
+                InMemoryPayments.DEFAULT_REORDER_WINDOW,
+                InMemoryPayments.DEFAULT_RETENTION_HORIZON,
+                InMemoryPayments.DEFAULT_COMPACTION_INTERVAL,
+                InMemoryPayments.DEFAULT_ROLL_UPS_COARSE_AFTER,
+                InMemoryPayments.DEFAULT_ROLL_UPS_HORIZON,
+                InMemoryPayments.DEFAULT_CORRELATION_IDS_CAPACITY,
+                PaymentsJournal.disabled());
+        Instant baseTime = Instant.parse("2025-07-21T10:00:00Z");
+        IntStream.range(0, 10_000).forEach(i -> payments.add(Payment.of("corr-" + i, RemotePaymentName.DEFAULT,
+                BigDecimal.ONE, baseTime.plusMillis(i))));
+        // not aligned to the millisecond, so reduced over the payments rather than read off the index
+        Instant to = baseTime.plusSeconds(5).plusNanos(1);
+        PaymentsSummary reduced = payments.getSummary(baseTime, to);
+
+        payments.close();
+
+        assertThat(payments.isReductionPoolShutdown()).isTrue();
+        assertThat(payments.getSummary(baseTime, to)).isEqualTo(reduced);
+        assertThat(reduced.defaultPaymentSummary().totalRequests()).isEqualTo(5_001L);
+    }
+
+    @Test
+    @DisplayName("Should keep what it retains flat over a long run")
+    void shouldKeepWhatItRetainsFlatOverALongRun() {
+        InMemoryPayments payments = new InMemoryPayments(
+                InMemoryPayments.DEFAULT_PARALLEL_STREAM_THRESHOLD,
+                InMemoryPayments.DEFAULT_REORDER_WINDOW,
+                Duration.ofMinutes(1),
+                InMemoryPayments.DEFAULT_COMPACTION_INTERVAL,
+                Duration.ofMinutes(10),
+                Duration.ofHours(1),
+                6_400,
+                PaymentsJournal.disabled());
+        Instant baseTime = Instant.parse("2025-07-21T10:00:00Z");
+        List<Long> retained = new ArrayList<>();
+        int seconds = 6 * 60 * 60;
+        for (int second = 0; second < seconds; second++) {
+            for (int i = 0; i < 2; i++) {
+                payments.add(Payment.of("corr-" + second + "-" + i, RemotePaymentName.DEFAULT,
+                        BigDecimal.ONE, baseTime.plusSeconds(second).plusMillis(i * 500L)));
+            }
+            if (second % 60 == 59) {
+                Instant now = baseTime.plusSeconds(second + 1);
+                PaymentsSummary lastHour = payments.getSummary(now.minus(Duration.ofHours(1)), now);
+                payments.compact(now.minus(Duration.ofMinutes(1)));
+                payments.retainRollUps(now);
+                // exact, as the range is aligned to the minute
+                assertThat(payments.getSummary(now.minus(Duration.ofHours(1)), now)).isEqualTo(lastHour);
+            }
+            if (second % 3_600 == 3_599) {
+                retained.add((long) payments.retainedRollUps());
+                retained.add(payments.retainedCorrelationIds());
+            }
+        }
+
+        // from the second hour on, as much is kept every hour
+        for (int hour = 2; hour < retained.size() / 2; hour++) {
+            assertThat(retained.get(hour * 2)).isEqualTo(retained.get(2));
+            assertThat(retained.get(hour * 2 + 1)).isLessThanOrEqualTo(2 * 6_400L);
+        }
+        assertThat(retained.get(2)).isLessThanOrEqualTo(10 * 60 + 60 + 1L);
+        // what's past the horizon is still counted, as a whole
+        PaymentsSummary all = payments.getSummary(null, null);
+        assertThat(all.defaultPaymentSummary().totalRequests()).isEqualTo(2L * seconds);
+        assertThat(all.defaultPaymentSummary().totalAmount()).isEqualByComparingTo(BigDecimal.valueOf(2L * seconds));
+        assertThat(payments.contains("corr-" + (seconds - 1) + "-1")).isTrue();
+    }
+
 }
@@ -0,0 +1,232 @@
+package org.acme.infrastructure;
+
+import org.acme.domain.Payment;
+import org.acme.domain.PaymentsSummary;
+import org.acme.domain.RemotePaymentName;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("PaymentsJournal Tests")
+class PaymentsJournalTests {
+
+    private Path path;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        path = Files.createTempFile("payments", ".journal");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(path);
+        Files.deleteIfExists(Path.of(path + ".snapshot"));
+    }
+
+    private PaymentsJournal open() {
+        return open(PaymentsJournal.DEFAULT_CAPACITY);
+    }
+
+    private PaymentsJournal open(long capacity) {
+        return new PaymentsJournal(Optional.of(path.toString()), Duration.ofMillis(10), Duration.ofMinutes(1), capacity);
+    }
+
+    private static InMemoryPayments inMemoryPayments(PaymentsJournal journal) {
+        return new InMemoryPayments(
+                InMemoryPayments.DEFAULT_PARALLEL_STREAM_THRESHOLD,
+                InMemoryPayments.DEFAULT_REORDER_WINDOW,
+                InMemoryPayments.DEFAULT_RETENTION_HORIZON,
+                InMemoryPayments.DEFAULT_COMPACTION_INTERVAL,
+                InMemoryPayments.DEFAULT_ROLL_UPS_COARSE_AFTER,
+                InMemoryPayments.DEFAULT_ROLL_UPS_HORIZON,
+                InMemoryPayments.DEFAULT_CORRELATION_IDS_CAPACITY,
+                journal);
+    }
+
+    @Test
+    @DisplayName("Should replay the journaled payments exactly")
+    void shouldReplayTheJournaledPaymentsExactly() {
+        List<Payment> journaled = List.of(
+                Payment.of(UUID.randomUUID().toString(), RemotePaymentName.DEFAULT,
+                        new BigDecimal("19.90"), Instant.parse("2025-07-21T10:00:00.123456789Z")),
+                Payment.of("corr-1", RemotePaymentName.FALLBACK,
+                        new BigDecimal("0.001"), Instant.parse("2025-07-21T10:00:01Z")),
+                Payment.of("corr-2", RemotePaymentName.DEFAULT,
+                        new BigDecimal("-1E+3"), Instant.parse("1970-01-01T00:00:00Z")));
+
+        PaymentsJournal journal = open();
+        journal.replay(0, payment -> { }, () -> { });
+        journaled.forEach(journal::append);
+        journal.close();
+
+        List<Payment> replayed = new ArrayList<>();
+        PaymentsJournal reopened = open();
+        reopened.replay(0, replayed::add, replayed::clear);
+        reopened.close();
+
+        assertThat(replayed).containsExactlyElementsOf(journaled);
+    }
+
+    @Test
+    @DisplayName("Should rebuild InMemoryPayments as they were before the restart")
+    void shouldRebuildInMemoryPaymentsAsTheyWereBeforeTheRestart() {
+        Instant baseTime = Instant.parse("2025-07-21T10:00:00Z");
+        PaymentsJournal journal = open();
+        InMemoryPayments payments = inMemoryPayments(journal);
+        payments.add(Payment.of("purged", RemotePaymentName.DEFAULT, BigDecimal.TEN, baseTime));
+        payments.purge();
+        IntStream.range(0, 1_000).forEach(i -> payments.add(Payment.of("corr-" + i,
+                i % 4 == 0 ? RemotePaymentName.FALLBACK : RemotePaymentName.DEFAULT,
+                BigDecimal.valueOf(i, 2),
+                baseTime.plusMillis(i * 7L))));
+        payments.add(Payment.of("corr-0", RemotePaymentName.DEFAULT, BigDecimal.ONE, baseTime));
+        PaymentsSummary before = payments.getSummary(null, null);
+        journal.close();
+
+        PaymentsJournal reopened = open();
+        InMemoryPayments restarted = inMemoryPayments(reopened);
+        restarted.add(Payment.of("corr-1000", RemotePaymentName.DEFAULT, BigDecimal.ONE, baseTime.plusSeconds(10)));
+        reopened.close();
+
+        assertThat(restarted.contains("purged")).isFalse();
+        assertThat(restarted.contains("corr-999")).isTrue();
+        assertThat(restarted.getSummary(null, baseTime.plusSeconds(9))).isEqualTo(before);
+
+        List<Payment> replayed = new ArrayList<>();
+        PaymentsJournal appendedAfterRestart = open();
+        appendedAfterRestart.replay(0, replayed::add, replayed::clear);
+        appendedAfterRestart.close();
+        assertThat(replayed).hasSize(1_001);
+    }
+
+    @Test
+    @DisplayName("Should restore InMemoryPayments from the snapshot and the journal past it")
+    void shouldRestoreInMemoryPaymentsFromTheSnapshotAndTheJournalPastIt() {
+        Instant baseTime = Instant.parse("2025-07-21T10:00:00Z");
+        PaymentsJournal journal = open();
+        InMemoryPayments payments = inMemoryPayments(journal);
+        IntStream.range(0, 3_000).forEach(i -> payments.add(Payment.of("corr-" + i,
+                i % 3 == 0 ? RemotePaymentName.FALLBACK : RemotePaymentName.DEFAULT,
+                BigDecimal.valueOf(i % 100, 2),
+                baseTime.plusMillis(i * 10L))));
+        payments.compact(baseTime.plusSeconds(10));
+        payments.snapshot();
+        long snapshotted = journal.position();
+        IntStream.range(3_000, 4_000).forEach(i -> payments.add(Payment.of("corr-" + i,
+                RemotePaymentName.DEFAULT,
+                BigDecimal.valueOf(i % 100, 3),
+                baseTime.plusMillis(i * 10L))));
+        List<Instant[]> ranges = List.of(
+                new Instant[]{null, null},
+                new Instant[]{baseTime, baseTime.plusSeconds(20)},
+                new Instant[]{baseTime.plusSeconds(5), baseTime.plusSeconds(35)},
+                new Instant[]{baseTime.plusSeconds(30), null});
+        List<PaymentsSummary> before = ranges.stream().map(range -> payments.getSummary(range[0], range[1])).toList();
+        journal.close();
+
+        PaymentsJournal reopened = open();
+        List<Payment> replayed = new ArrayList<>();
+        reopened.replay(snapshotted, replayed::add, replayed::clear);
+        InMemoryPayments restarted = inMemoryPayments(reopened);
+        restarted.add(Payment.of("corr-5", RemotePaymentName.DEFAULT, BigDecimal.ONE, baseTime.plusSeconds(60)));
+        reopened.close();
+
+        assertThat(replayed).hasSize(1_000);
+        assertThat(restarted.contains("corr-5")).isTrue();
+        assertThat(ranges.stream().map(range -> restarted.getSummary(range[0], range[1])).toList()).isEqualTo(before);
+    }
+
+    @Test
+    @DisplayName("Should keep the journal within its capacity across laps, replaying past the latest snapshot")
+    void shouldKeepTheJournalWithinItsCapacityAcrossLapsReplayingPastTheLatestSnapshot() throws IOException {
+        Instant baseTime = Instant.parse("2025-07-21T10:00:00Z");
+        PaymentsJournal journal = open(1_024);
+        InMemoryPayments payments = inMemoryPayments(journal);
+        for (int i = 0; i < 10_000; i++) {
+            payments.add(Payment.of("corr-" + i, RemotePaymentName.DEFAULT, BigDecimal.ONE, baseTime.plusMillis(i)));
+            if (journal.isHalfFull()) {
+                payments.snapshot();
+            }
+        }
+        PaymentsSummary before = payments.getSummary(null, null);
+        journal.close();
+
+        PaymentsJournal reopened = open(1_024);
+        InMemoryPayments restarted = inMemoryPayments(reopened);
+        reopened.close();
+
+        assertThat(Files.size(path)).isLessThanOrEqualTo(1_024L * PaymentsJournal.RECORD_SIZE);
+        assertThat(before.defaultPaymentSummary().totalRequests()).isEqualTo(10_000L);
+        assertThat(restarted.getSummary(null, null)).isEqualTo(before);
+        assertThat(restarted.contains("corr-0")).isTrue();
+        assertThat(restarted.contains("corr-9999")).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should not overwrite records no snapshot covers yet")
+    void shouldNotOverwriteRecordsNoSnapshotCoversYet() {
+        Instant baseTime = Instant.parse("2025-07-21T10:00:00Z");
+        PaymentsJournal journal = open(1_024);
+        journal.replay(0, payment -> { }, () -> { });
+        IntStream.range(0, 1_100).forEach(i -> journal.append(
+                Payment.of("corr-" + i, RemotePaymentName.DEFAULT, BigDecimal.ONE, baseTime.plusMillis(i))));
+        journal.close();
+
+        List<Payment> replayed = new ArrayList<>();
+        PaymentsJournal reopened = open(1_024);
+        reopened.replay(0, replayed::add, replayed::clear);
+        reopened.close();
+
+        assertThat(replayed).hasSize(1_024);
+        assertThat(replayed.get(0).correlationId()).isEqualTo("corr-0");
+    }
+
+    @Test
+    @DisplayName("Should restore exactly from snapshots taken while payments are being added")
+    void shouldRestoreExactlyFromSnapshotsTakenWhilePaymentsAreBeingAdded() throws InterruptedException {
+        Instant baseTime = Instant.parse("2025-07-21T10:00:00Z");
+        PaymentsJournal journal = open();
+        InMemoryPayments payments = inMemoryPayments(journal);
+        List<Thread> writers = IntStream.range(0, 4)
+                .mapToObj(writer -> Thread.startVirtualThread(() -> {
+                    for (int i = 0; i < 5_000; i++) {
+                        payments.add(Payment.of("corr-" + writer + "-" + i, RemotePaymentName.DEFAULT,
+                                BigDecimal.ONE, baseTime.plusMillis(i * 3L)));
+                    }
+                }))
+                .toList();
+        while (writers.stream().anyMatch(Thread::isAlive)) {
+            payments.snapshot();
+            Thread.yield();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        PaymentsSummary before = payments.getSummary(null, null);
+        journal.close();
+
+        PaymentsJournal reopened = open();
+        InMemoryPayments restarted = inMemoryPayments(reopened);
+        reopened.close();
+
+        assertThat(before.defaultPaymentSummary().totalRequests()).isEqualTo(20_000L);
+        assertThat(restarted.getSummary(null, null)).isEqualTo(before);
+        assertThat(restarted.getSummary(baseTime.plusSeconds(3), baseTime.plusSeconds(9)))
+                .isEqualTo(payments.getSummary(baseTime.plusSeconds(3), baseTime.plusSeconds(9)));
+    }
+}
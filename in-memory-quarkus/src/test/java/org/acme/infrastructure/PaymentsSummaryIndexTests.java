@@ -0,0 +1,137 @@
+package org.acme.infrastructure;
+
+import org.acme.domain.Payment;
+import org.acme.domain.PaymentSummary;
+import org.acme.domain.PaymentsSummary;
+import org.acme.domain.RemotePaymentName;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("PaymentsSummaryIndex Tests")
+class PaymentsSummaryIndexTests {
+
+    private static final Instant BASE_TIME = Instant.parse("2025-07-21T10:00:00Z");
+
+    private PaymentsSummaryIndex index;
+    private List<Payment> payments;
+
+    @BeforeEach
+    void setUp() {
+        index = new PaymentsSummaryIndex();
+        payments = new ArrayList<>();
+    }
+
+    private void add(Payment payment) {
+        payments.add(payment);
+        index.add(payment);
+    }
+
+    private PaymentsSummary expected(Instant from, Instant to) {
+        PaymentSummary defaultSummary = PaymentSummary.ZERO;
+        PaymentSummary fallbackSummary = PaymentSummary.ZERO;
+        for (Payment payment : payments) {
+            if (Payment.createdOn(from, to).test(payment)) {
+                if (payment.processedBy() == RemotePaymentName.DEFAULT) {
+                    defaultSummary = defaultSummary.add(payment);
+                } else {
+                    fallbackSummary = fallbackSummary.add(payment);
+                }
+            }
+        }
+        return PaymentsSummary.of(defaultSummary, fallbackSummary);
+    }
+
+    @Test
+    @DisplayName("Should match createdOn semantics for millisecond aligned ranges")
+    void shouldMatchCreatedOnSemanticsForMillisecondAlignedRanges() {
+        Random random = new Random(42);
+        RemotePaymentName[] processors = RemotePaymentName.values();
+        for (int i = 0; i < 20_000; i++) {
+            Instant requestedAt = BASE_TIME.plusNanos(random.nextLong(5_000_000_000L));
+            if (i % 10 == 0) {
+                requestedAt = BASE_TIME.plusMillis(random.nextInt(5_000));
+            }
+            add(Payment.of("corr-" + i, processors[i % processors.length],
+                    BigDecimal.valueOf(random.nextInt(100_000), random.nextInt(3)), requestedAt));
+        }
+
+        for (int i = 0; i < 500; i++) {
+            Instant from = BASE_TIME.plusMillis(random.nextInt(5_200) - 100);
+            Instant to = from.plusMillis(random.nextInt(3_000));
+            assertThat(index.getSummary(from, to)).hasValue(expected(from, to));
+        }
+        assertThat(index.getSummary(null, null)).hasValue(expected(null, null));
+        assertThat(index.getSummary(BASE_TIME.plusMillis(1_234), null)).hasValue(expected(BASE_TIME.plusMillis(1_234), null));
+        assertThat(index.getSummary(null, BASE_TIME.plusMillis(1_234))).hasValue(expected(null, BASE_TIME.plusMillis(1_234)));
+    }
+
+    @Test
+    @DisplayName("Should include payments requested exactly at the range boundaries")
+    void shouldIncludePaymentsRequestedExactlyAtTheRangeBoundaries() {
+        add(Payment.of("corr-1", RemotePaymentName.DEFAULT, new BigDecimal("10.50"), BASE_TIME));
+        add(Payment.of("corr-2", RemotePaymentName.DEFAULT, new BigDecimal("1.5"), BASE_TIME.plusSeconds(2)));
+        add(Payment.of("corr-3", RemotePaymentName.DEFAULT, new BigDecimal("7"), BASE_TIME.plusSeconds(2).plusNanos(1_000)));
+
+        PaymentsSummary summary = index.getSummary(BASE_TIME, BASE_TIME.plusSeconds(2)).orElseThrow();
+
+        assertThat(summary.defaultPaymentSummary().totalRequests()).isEqualTo(2L);
+        assertThat(summary.defaultPaymentSummary().totalAmount()).isEqualTo(new BigDecimal("12.00"));
+    }
+
+    @Test
+    @DisplayName("Should render each range with the scales of the payments in it only")
+    void shouldRenderEachRangeWithTheScalesOfThePaymentsInItOnly() {
+        add(Payment.of("corr-1", RemotePaymentName.DEFAULT, new BigDecimal("7"), BASE_TIME.plusMillis(10)));
+        add(Payment.of("corr-2", RemotePaymentName.DEFAULT, new BigDecimal("1.50"), BASE_TIME.plusMillis(500)));
+        add(Payment.of("corr-3", RemotePaymentName.DEFAULT, new BigDecimal("0.125"), BASE_TIME.plusMillis(900)));
+        add(Payment.of("corr-4", RemotePaymentName.FALLBACK, new BigDecimal("3"), BASE_TIME.plusMillis(1_500)));
+
+        for (int from = 0; from < 2_000; from += 50) {
+            for (int to = from; to < 2_000; to += 50) {
+                Instant fromInstant = BASE_TIME.plusMillis(from);
+                Instant toInstant = BASE_TIME.plusMillis(to);
+                assertThat(index.getSummary(fromInstant, toInstant)).hasValue(expected(fromInstant, toInstant));
+            }
+        }
+        assertThat(index.getSummary(BASE_TIME, BASE_TIME.plusMillis(100)).orElseThrow()
+                .defaultPaymentSummary().totalAmount()).isEqualTo(new BigDecimal("7"));
+    }
+
+    @Test
+    @DisplayName("Should not answer after indexing an amount with trailing zeros past the fixed point")
+    void shouldNotAnswerAfterIndexingAnAmountWithTrailingZerosPastTheFixedPoint() {
+        add(Payment.of("corr-1", RemotePaymentName.DEFAULT, new BigDecimal("1." + "0".repeat(40)), BASE_TIME));
+
+        assertThat(index.getSummary(null, null)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should not answer ranges that are not aligned to the millisecond")
+    void shouldNotAnswerRangesThatAreNotAlignedToTheMillisecond() {
+        add(Payment.of("corr-1", RemotePaymentName.DEFAULT, BigDecimal.TEN, BASE_TIME));
+
+        assertThat(index.getSummary(BASE_TIME.plusNanos(1), null)).isEmpty();
+        assertThat(index.getSummary(null, BASE_TIME.plusNanos(1))).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should not answer after indexing an amount with too many decimal places")
+    void shouldNotAnswerAfterIndexingAnAmountWithTooManyDecimalPlaces() {
+        add(Payment.of("corr-1", RemotePaymentName.DEFAULT, new BigDecimal("0.123456"), BASE_TIME));
+
+        assertThat(index.getSummary(null, null)).isEmpty();
+
+        index.clear();
+        assertThat(index.getSummary(null, null)).hasValue(PaymentsSummary.ZERO);
+    }
+
+}
@@ -0,0 +1,88 @@
+package org.acme.infrastructure;
+
+import org.acme.domain.Payment;
+import org.acme.domain.PaymentsSummary;
+import org.acme.domain.RemotePaymentName;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("RangeAggregation Tests")
+class RangeAggregationTests {
+
+    private static final Instant START = Instant.parse("2025-07-21T10:00:00Z");
+
+    @Test
+    @DisplayName("Should sum the payments within the offsets with every kernel")
+    void shouldSumThePaymentsWithinTheOffsetsWithEveryKernel() {
+        Random random = new Random(11);
+        // odd sizes leave a tail the vector kernel has to sum lane by lane
+        for (int size : new int[]{0, 1, 7, 1_001, 10_003}) {
+            Payment[] payments = new Payment[size];
+            for (int i = 0; i < size; i++) {
+                payments[i] = Payment.of("corr-" + i,
+                        random.nextInt(4) == 0 ? RemotePaymentName.FALLBACK : RemotePaymentName.DEFAULT,
+                        BigDecimal.valueOf(random.nextInt(1_000_000) - 1_000, random.nextInt(5)),
+                        START.plusNanos(random.nextLong(1_000_000_000L)));
+            }
+            Arrays.sort(payments, Comparator.comparing(Payment::requestedAt));
+            SegmentColumns columns = SegmentColumns.of(payments, START);
+
+            for (int i = 0; i < 50; i++) {
+                Instant from = START.plusNanos(random.nextLong(-1_000_000L, 1_000_000_000L));
+                Instant to = from.plusNanos(random.nextLong(500_000_000L));
+                PaymentsSummary expected = Arrays.stream(payments)
+                        .filter(Payment.createdOn(from, to))
+                        .collect(FixedPointSummary.collector());
+                for (RangeAggregation aggregation : new RangeAggregation[]{RangeAggregation.SCALAR, RangeAggregation.preferred()}) {
+                    FixedPointSummary summary = new FixedPointSummary();
+                    aggregation.sum(columns, SegmentColumns.offsetOf(START, from), SegmentColumns.offsetOf(START, to), summary);
+                    assertThat(summary.toPaymentsSummary()).isEqualTo(expected);
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should sum the payments within a range through the public kernels")
+    void shouldSumThePaymentsWithinARangeThroughThePublicKernels() {
+        Payment[] payments = {
+                Payment.of("corr-1", RemotePaymentName.DEFAULT, new BigDecimal("19.90"), START),
+                Payment.of("corr-2", RemotePaymentName.FALLBACK, new BigDecimal("5"), START.plusMillis(400)),
+                Payment.of("corr-3", RemotePaymentName.DEFAULT, new BigDecimal("0.10"), START.plusMillis(800))};
+        RangeAggregationKernel.Columns columns = RangeAggregationKernel.columns(payments, START);
+        Instant from = START.plusMillis(1);
+        Instant to = START.plusMillis(800);
+        PaymentsSummary expected = Arrays.stream(payments)
+                .filter(Payment.createdOn(from, to))
+                .collect(FixedPointSummary.collector());
+
+        assertThat(columns.size()).isEqualTo(3);
+        assertThat(RangeAggregationKernel.SCALAR.isVectorized()).isFalse();
+        assertThat(RangeAggregationKernel.SCALAR.sum(columns, from, to)).isEqualTo(expected);
+        assertThat(RangeAggregationKernel.preferred().sum(columns, from, to)).isEqualTo(expected);
+        assertThatThrownBy(() -> RangeAggregationKernel.columns(new Payment[]{
+                Payment.of("corr-4", RemotePaymentName.DEFAULT, new BigDecimal("0.00001"), START)}, START))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("Should not keep columns that could overflow the sums")
+    void shouldNotKeepColumnsThatCouldOverflowTheSums() {
+        Payment[] payments = {
+                Payment.of("corr-1", RemotePaymentName.DEFAULT, new BigDecimal("900000000000000"), START),
+                Payment.of("corr-2", RemotePaymentName.DEFAULT, new BigDecimal("900000000000000"), START)};
+
+        assertThat(SegmentColumns.of(payments, START)).isNull();
+        assertThat(SegmentColumns.of(new Payment[]{
+                Payment.of("corr-3", RemotePaymentName.DEFAULT, new BigDecimal("0.00001"), START)}, START)).isNull();
+    }
+}
@@ -0,0 +1,79 @@
+package org.acme.infrastructure;
+
+import jakarta.ws.rs.core.Response;
+import org.acme.domain.DefaultRemotePaymentProcessor;
+import org.acme.domain.FallbackRemotePaymentProcessor;
+import org.acme.domain.RemotePaymentName;
+import org.acme.domain.ServiceHealth;
+import org.jboss.resteasy.reactive.RestResponse;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("RestRemotePaymentClient Tests")
+class RestRemotePaymentClientTests {
+
+    private static final byte[] BODY = "{}".getBytes(StandardCharsets.US_ASCII);
+
+    @Test
+    @DisplayName("Should post to the processor asked for and complete with its status")
+    void shouldPostToTheProcessorAskedForAndCompleteWithItsStatus() {
+        RestRemotePaymentClient client = new RestRemotePaymentClient(
+                new DefaultProcessor(Response.Status.OK), new FallbackProcessor(Response.Status.INTERNAL_SERVER_ERROR));
+
+        assertThat(status(client, RemotePaymentName.DEFAULT)).isEqualTo(200);
+        assertThat(status(client, RemotePaymentName.FALLBACK)).isEqualTo(500);
+    }
+
+    @Test
+    @DisplayName("Should complete exceptionally rather than throw when the processor can't be reached")
+    void shouldCompleteExceptionallyRatherThanThrowWhenTheProcessorCannotBeReached() {
+        RestRemotePaymentClient client = new RestRemotePaymentClient(new DefaultProcessor(null), new FallbackProcessor(null));
+
+        CompletableFuture<Integer> call = client.post(RemotePaymentName.DEFAULT, BODY).toCompletableFuture();
+
+        assertThat(call.isCompletedExceptionally()).isTrue();
+        assertThatThrownBy(call::join).isInstanceOf(CompletionException.class);
+    }
+
+    private static int status(RestRemotePaymentClient client, RemotePaymentName processor) {
+        return client.post(processor, BODY).toCompletableFuture().join();
+    }
+
+    // answers every payment with the given status, or fails to connect without one
+    private record DefaultProcessor(Response.Status status) implements DefaultRemotePaymentProcessor {
+
+        @Override
+        public RestResponse<Void> processPayment(byte[] request) {
+            if (status == null) {
+                throw new IllegalStateException("Connection refused");
+            }
+            return RestResponse.status(status);
+        }
+
+        @Override
+        public RestResponse<ServiceHealth> serviceHealth() {
+            return RestResponse.ok(ServiceHealth.UNKNOWN);
+        }
+    }
+
+    private record FallbackProcessor(Response.Status status) implements FallbackRemotePaymentProcessor {
+
+        @Override
+        public RestResponse<Void> processPayment(byte[] request) {
+            return new DefaultProcessor(status).processPayment(request);
+        }
+
+        @Override
+        public RestResponse<ServiceHealth> serviceHealth() {
+            return RestResponse.ok(ServiceHealth.UNKNOWN);
+        }
+    }
+
+}
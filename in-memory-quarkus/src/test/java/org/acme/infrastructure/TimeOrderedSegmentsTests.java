@@ -0,0 +1,170 @@
+package org.acme.infrastructure;
+
+import org.acme.domain.Payment;
+import org.acme.domain.PaymentsSummary;
+import org.acme.domain.RemotePaymentName;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("TimeOrderedSegments Tests")
+class TimeOrderedSegmentsTests {
+
+    private static final Instant BASE_TIME = Instant.parse("2025-07-21T10:00:00Z");
+
+    private TimeOrderedSegments segments;
+    private List<Payment> payments;
+
+    @BeforeEach
+    void setUp() {
+        segments = new TimeOrderedSegments(500, RangeAggregation.preferred());
+        payments = new ArrayList<>();
+    }
+
+    private void add(Payment payment) {
+        payments.add(payment);
+        segments.add(payment);
+    }
+
+    private List<Payment> expected(Instant from, Instant to) {
+        return payments.stream()
+                .filter(Payment.createdOn(from, to))
+                .sorted(Comparator.comparing(Payment::correlationId))
+                .toList();
+    }
+
+    private List<Payment> actual(Instant from, Instant to) {
+        return segments.stream(from, to)
+                .sorted(Comparator.comparing(Payment::correlationId))
+                .toList();
+    }
+
+    @Test
+    @DisplayName("Should match createdOn semantics for out of order and late payments")
+    void shouldMatchCreatedOnSemanticsForOutOfOrderAndLatePayments() {
+        Random random = new Random(42);
+        for (int i = 0; i < 20_000; i++) {
+            // mostly a few milliseconds late, sometimes far beyond the reorder window
+            long lateness = i % 100 == 0 ? random.nextLong(3_000_000_000L) : random.nextLong(20_000_000L);
+            Instant requestedAt = BASE_TIME.plusNanos(i * 500_000L - lateness);
+            add(Payment.of("corr-" + i, RemotePaymentName.DEFAULT, BigDecimal.ONE, requestedAt));
+        }
+
+        for (int i = 0; i < 200; i++) {
+            Instant from = BASE_TIME.plusNanos(random.nextLong(10_000_000_000L) - 1_000_000_000L);
+            Instant to = from.plusNanos(random.nextLong(3_000_000_000L));
+            assertThat(actual(from, to)).isEqualTo(expected(from, to));
+        }
+        assertThat(actual(null, null)).isEqualTo(expected(null, null));
+        assertThat(actual(BASE_TIME.plusMillis(1_234), null)).isEqualTo(expected(BASE_TIME.plusMillis(1_234), null));
+        assertThat(actual(null, BASE_TIME.plusMillis(1_234))).isEqualTo(expected(null, BASE_TIME.plusMillis(1_234)));
+        assertThat(segments.size()).isEqualTo(20_000L);
+    }
+
+    @Test
+    @DisplayName("Should summarize like the streamed payments, with or without a reduction pool")
+    void shouldSummarizeLikeTheStreamedPaymentsWithOrWithoutAReductionPool() {
+        TimeOrderedSegments scalar = new TimeOrderedSegments(500, RangeAggregation.SCALAR);
+        Random random = new Random(7);
+        for (int i = 0; i < 20_000; i++) {
+            long lateness = i % 100 == 0 ? random.nextLong(3_000_000_000L) : random.nextLong(20_000_000L);
+            Payment payment = Payment.of("corr-" + i,
+                    i % 3 == 0 ? RemotePaymentName.FALLBACK : RemotePaymentName.DEFAULT,
+                    BigDecimal.valueOf(random.nextInt(100_000), i % 3),
+                    BASE_TIME.plusNanos(i * 500_000L - lateness));
+            add(payment);
+            scalar.add(payment);
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int i = 0; i < 100; i++) {
+                Instant from = i == 0 ? null : BASE_TIME.plusNanos(random.nextLong(10_000_000_000L) - 1_000_000_000L);
+                Instant to = i == 0 ? null : from.plusNanos(random.nextLong(5_000_000_000L));
+                PaymentsSummary expected = payments.stream()
+                        .filter(Payment.createdOn(from, to))
+                        .collect(FixedPointSummary.collector());
+                assertThat(segments.summarize(from, to, null)).isEqualTo(expected);
+                assertThat(segments.summarize(from, to, pool)).isEqualTo(expected);
+                assertThat(scalar.summarize(from, to, null)).isEqualTo(expected);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Should hold sorted payments added in bulk like payments added one by one")
+    void shouldHoldSortedPaymentsAddedInBulkLikePaymentsAddedOneByOne() {
+        Random random = new Random(11);
+        Payment[] sorted = IntStream.range(0, 20_000)
+                .mapToObj(i -> Payment.of("corr-" + i, i % 3 == 0 ? RemotePaymentName.FALLBACK : RemotePaymentName.DEFAULT,
+                        BigDecimal.valueOf(random.nextInt(100_000), 2), BASE_TIME.plusNanos(i * 500_000L)))
+                .toArray(Payment[]::new);
+        payments.addAll(List.of(sorted));
+        segments.addSorted(sorted);
+        // late for sealed segments, and in order for open ones
+        add(Payment.of("late", RemotePaymentName.DEFAULT, BigDecimal.ONE, BASE_TIME.plusMillis(1_500)));
+        add(Payment.of("latest", RemotePaymentName.DEFAULT, BigDecimal.ONE, BASE_TIME.plusSeconds(12)));
+
+        for (int i = 0; i < 100; i++) {
+            Instant from = i == 0 ? null : BASE_TIME.plusNanos(random.nextLong(12_000_000_000L) - 1_000_000_000L);
+            Instant to = i == 0 ? null : from.plusNanos(random.nextLong(5_000_000_000L));
+            assertThat(actual(from, to)).isEqualTo(expected(from, to));
+            assertThat(segments.summarize(from, to, null)).isEqualTo(payments.stream()
+                    .filter(Payment.createdOn(from, to))
+                    .collect(FixedPointSummary.collector()));
+        }
+        assertThat(segments.size()).isEqualTo(20_002L);
+    }
+
+    @Test
+    @DisplayName("Should snapshot the payments held when taken, whatever is added afterwards")
+    void shouldSnapshotThePaymentsHeldWhenTakenWhateverIsAddedAfterwards() {
+        for (int i = 0; i < 5_000; i++) {
+            add(Payment.of("corr-" + i, RemotePaymentName.DEFAULT, BigDecimal.ONE, BASE_TIME.plusMillis(i)));
+        }
+        List<Payment> held = expected(null, null);
+
+        var snapshot = segments.snapshot();
+        for (int i = 5_000; i < 6_000; i++) {
+            segments.add(Payment.of("corr-" + i, RemotePaymentName.DEFAULT, BigDecimal.ONE, BASE_TIME.plusMillis(i - 2_000)));
+        }
+
+        assertThat(snapshot.sorted(Comparator.comparing(Payment::correlationId)).toList()).isEqualTo(held);
+    }
+
+    @Test
+    @DisplayName("Should include payments requested exactly at the range boundaries")
+    void shouldIncludePaymentsRequestedExactlyAtTheRangeBoundaries() {
+        add(Payment.of("corr-1", RemotePaymentName.DEFAULT, BigDecimal.ONE, BASE_TIME));
+        add(Payment.of("corr-2", RemotePaymentName.DEFAULT, BigDecimal.ONE, BASE_TIME.plusSeconds(5)));
+        add(Payment.of("corr-3", RemotePaymentName.DEFAULT, BigDecimal.ONE, BASE_TIME.plusSeconds(5).plusNanos(1)));
+
+        assertThat(actual(BASE_TIME, BASE_TIME.plusSeconds(5))).isEqualTo(expected(BASE_TIME, BASE_TIME.plusSeconds(5)));
+        assertThat(actual(BASE_TIME, BASE_TIME.plusSeconds(5))).hasSize(2);
+    }
+
+    @Test
+    @DisplayName("Should be empty after clear")
+    void shouldBeEmptyAfterClear() {
+        add(Payment.of("corr-1", RemotePaymentName.DEFAULT, BigDecimal.ONE, BASE_TIME));
+
+        segments.clear();
+
+        assertThat(actual(null, null)).isEmpty();
+        assertThat(segments.size()).isZero();
+    }
+
+}
@@ -0,0 +1,102 @@
+package org.acme.infrastructure;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpServer;
+import org.acme.domain.RemotePaymentName;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("VertxRemotePaymentClient Tests")
+class VertxRemotePaymentClientTests {
+
+    private static final byte[] BODY = "{\"correlationId\":\"id\",\"amount\":19.90}".getBytes(StandardCharsets.US_ASCII);
+
+    private final List<String> received = new CopyOnWriteArrayList<>();
+    private final AtomicInteger status = new AtomicInteger(200);
+    private Vertx vertx;
+    private HttpServer processor;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        vertx = Vertx.vertx();
+        processor = vertx.createHttpServer()
+                .requestHandler(request -> request.body().onSuccess(body -> {
+                    received.add(request.method() + " " + request.path() + " " + body.toString(StandardCharsets.UTF_8));
+                    request.response().setStatusCode(status.get()).end("{\"message\":\"payment processed successfully\"}");
+                }))
+                .listen(0)
+                .toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    @DisplayName("Should post the body to the processor's payments and complete with its status")
+    void shouldPostTheBodyToTheProcessorsPaymentsAndCompleteWithItsStatus() throws Exception {
+        VertxRemotePaymentClient client = client(URI.create("http://localhost:" + processor.actualPort() + "/"), false);
+
+        assertThat(post(client, RemotePaymentName.DEFAULT)).isEqualTo(200);
+        status.set(500);
+        assertThat(post(client, RemotePaymentName.FALLBACK)).isEqualTo(500);
+
+        assertThat(received).containsExactly(
+                "POST /payments " + new String(BODY, StandardCharsets.US_ASCII),
+                "POST /payments " + new String(BODY, StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    @DisplayName("Should keep many calls in flight over a pool of one pipelined connection")
+    void shouldKeepManyCallsInFlightOverAPoolOfOnePipelinedConnection() throws Exception {
+        VertxRemotePaymentClient client = client(URI.create("http://localhost:" + processor.actualPort()), true);
+
+        List<CompletableFuture<Integer>> calls = IntStream.range(0, 50)
+                .mapToObj(i -> client.post(RemotePaymentName.DEFAULT, BODY).toCompletableFuture())
+                .toList();
+
+        for (CompletableFuture<Integer> call : calls) {
+            assertThat(call.get(5, TimeUnit.SECONDS)).isEqualTo(200);
+        }
+        assertThat(received.size()).isEqualTo(50);
+    }
+
+    @Test
+    @DisplayName("Should complete exceptionally when the processor can't be reached")
+    void shouldCompleteExceptionallyWhenTheProcessorCannotBeReached() throws Exception {
+        int port = processor.actualPort();
+        processor.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+        VertxRemotePaymentClient client = client(URI.create("http://localhost:" + port), false);
+
+        CompletableFuture<Integer> call = client.post(RemotePaymentName.DEFAULT, BODY).toCompletableFuture();
+
+        assertThatThrownBy(() -> call.get(5, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class);
+    }
+
+    private VertxRemotePaymentClient client(URI url, boolean pipelining) {
+        return new VertxRemotePaymentClient(vertx, url, 1, url, 1,
+                Duration.ofSeconds(60), pipelining, 10, Duration.ofSeconds(1), Duration.ofSeconds(5));
+    }
+
+    private static int post(VertxRemotePaymentClient client, RemotePaymentName processor) throws Exception {
+        return client.post(processor, BODY).toCompletableFuture().get(5, TimeUnit.SECONDS);
+    }
+
+}